@@ -0,0 +1,144 @@
+package com.ldtteam.structures.blueprints.v1;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.util.registry.Bootstrap;
+import net.minecraft.util.registry.Registry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.ldtteam.structurize.api.util.constant.Constants.MOD_ID;
+
+/**
+ * Benchmarks building the palette of a scanned region, in blocks per second.
+ * Compares the {@link BlueprintPaletteBuilder} against the former ArrayList contains and indexOf lookup per block.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BlueprintPaletteBuilderBenchmark
+{
+    /**
+     * The size of the scanned region in each direction.
+     */
+    private static final int REGION_SIZE = 64;
+
+    /**
+     * The amount of blocks of the scanned region.
+     */
+    private static final int REGION_VOLUME = REGION_SIZE * REGION_SIZE * REGION_SIZE;
+
+    /**
+     * The amount of distinct states in the region.
+     */
+    @Param({"16", "400", "1000"})
+    public int paletteSize;
+
+    /**
+     * The states of the region in scan order.
+     */
+    private BlockState[] region;
+
+    /**
+     * The scanned palette indices.
+     */
+    private short[] structure;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        Bootstrap.bootStrap();
+
+        final List<BlockState> states = new ArrayList<>();
+        for (final Block block : Registry.BLOCK)
+        {
+            for (final BlockState state : block.getStateDefinition().getPossibleStates())
+            {
+                if (states.size() < paletteSize && !state.isAir())
+                {
+                    states.add(state);
+                }
+            }
+        }
+        if (states.size() < paletteSize)
+        {
+            throw new IllegalStateException("Only " + states.size() + " block states are registered");
+        }
+
+        final Random random = new Random(paletteSize);
+        region = new BlockState[REGION_VOLUME];
+        for (int i = 0; i < region.length; i++)
+        {
+            // A quarter air, like most scanned builds.
+            region[i] = random.nextInt(4) == 0 ? Blocks.AIR.defaultBlockState() : states.get(random.nextInt(states.size()));
+        }
+        structure = new short[REGION_VOLUME];
+    }
+
+    /**
+     * Build the palette with the {@link BlueprintPaletteBuilder}, as done while scanning.
+     *
+     * @return the palette size.
+     */
+    @Benchmark
+    @OperationsPerInvocation(REGION_VOLUME)
+    public short paletteBuilder()
+    {
+        final BlueprintPaletteBuilder palette = new BlueprintPaletteBuilder();
+        for (int i = 0; i < region.length; i++)
+        {
+            structure[i] = palette.getOrAdd(region[i]);
+        }
+        return palette.getPaletteSize();
+    }
+
+    /**
+     * Build the palette with the former lookup, which searched an ArrayList twice per block.
+     *
+     * @return the palette size.
+     */
+    @Benchmark
+    @OperationsPerInvocation(REGION_VOLUME)
+    public short arrayListPalette()
+    {
+        final List<BlockState> palette = new ArrayList<>();
+        palette.add(Blocks.AIR.defaultBlockState());
+        final List<String> requiredMods = new ArrayList<>();
+        for (int i = 0; i < region.length; i++)
+        {
+            final BlockState state = region[i];
+            final String modName = state.getBlock().getRegistryName().getNamespace();
+            if (!modName.equals("minecraft") && !modName.equals(MOD_ID) && !requiredMods.contains(modName))
+            {
+                requiredMods.add(modName);
+            }
+
+            if (!palette.contains(state))
+            {
+                palette.add(state);
+            }
+            structure[i] = (short) palette.indexOf(state);
+        }
+        return (short) palette.size();
+    }
+}
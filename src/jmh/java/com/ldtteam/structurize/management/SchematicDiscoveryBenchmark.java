@@ -0,0 +1,207 @@
+package com.ldtteam.structurize.management;
+
+import com.ldtteam.structurize.api.util.BlockPosUtil;
+import net.minecraft.nbt.CompoundNBT;
+import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.nbt.ListNBT;
+import net.minecraft.nbt.StringNBT;
+import net.minecraft.util.math.BlockPos;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static com.ldtteam.structurize.api.util.constant.Constants.MOD_ID;
+
+/**
+ * Benchmarks the startup discovery of a synthetic pack of 5,000 blueprints, see {@link Structures#discoverSchematics(Path, String)}.
+ * Cold starts with an empty {@link BlueprintMetadataIndex}, so every file is hashed and its header read.
+ * Warm starts with the index the previous discovery saved, so unchanged files are only looked up.
+ * Both include loading the index, like a server start.
+ */
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SchematicDiscoveryBenchmark
+{
+    /**
+     * The amount of blueprints of the pack.
+     */
+    private static final int BLUEPRINTS = 5000;
+
+    /**
+     * The amount of style folders the blueprints are spread over.
+     */
+    private static final int STYLES = 50;
+
+    /**
+     * The size of each blueprint in each direction.
+     */
+    private static final short BLUEPRINT_SIZE = 16;
+
+    /**
+     * The synthetic pack, generated once per trial.
+     */
+    @State(Scope.Benchmark)
+    public static class Pack
+    {
+        /**
+         * The temporary folder of the trial, holding the pack and the index folders.
+         */
+        private Path root;
+
+        /**
+         * The folder containing the schematics folder of the pack.
+         */
+        private Path base;
+
+        @Setup(Level.Trial)
+        public void generate() throws IOException
+        {
+            root = Files.createTempDirectory("structurize-discovery");
+            base = root.resolve("pack");
+
+            final Random random = new Random(BLUEPRINTS);
+            for (int i = 0; i < BLUEPRINTS; i++)
+            {
+                final Path style = base.resolve(Structures.SCHEMATICS_PREFIX).resolve("style" + (i % STYLES));
+                Files.createDirectories(style);
+                CompressedStreamTools.writeCompressed(createBlueprint("building" + i, random), style.resolve("building" + i + Structures.SCHEMATIC_EXTENSION_NEW).toFile());
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void delete() throws IOException
+        {
+            BlueprintMetadataIndex.load(null);
+            try (Stream<Path> walk = Files.walk(root))
+            {
+                walk.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+
+        /**
+         * Create the tag of a version 1 blueprint with random blocks, so each file has its own MD5.
+         *
+         * @param name   the name of the blueprint.
+         * @param random the random to fill the blocks with.
+         * @return the tag.
+         */
+        private static CompoundNBT createBlueprint(final String name, final Random random)
+        {
+            final CompoundNBT tag = new CompoundNBT();
+            tag.putByte("version", (byte) 1);
+            tag.putShort("size_x", BLUEPRINT_SIZE);
+            tag.putShort("size_y", BLUEPRINT_SIZE);
+            tag.putShort("size_z", BLUEPRINT_SIZE);
+
+            final ListNBT palette = new ListNBT();
+            for (final String block : new String[] {"minecraft:air", "minecraft:stone", "minecraft:oak_planks", "minecraft:glass"})
+            {
+                final CompoundNBT state = new CompoundNBT();
+                state.putString("Name", block);
+                palette.add(state);
+            }
+            tag.put("palette", palette);
+
+            // Each int holds two palette indices.
+            final int[] blocks = new int[BLUEPRINT_SIZE * BLUEPRINT_SIZE * BLUEPRINT_SIZE / 2];
+            for (int i = 0; i < blocks.length; i++)
+            {
+                blocks[i] = random.nextInt(palette.size()) << 16 | random.nextInt(palette.size());
+            }
+            tag.putIntArray("blocks", blocks);
+
+            tag.put("tile_entities", new ListNBT());
+            tag.put("entities", new ListNBT());
+            tag.put("required_mods", new ListNBT());
+            tag.putString("name", name);
+            final ListNBT architects = new ListNBT();
+            architects.add(StringNBT.valueOf("benchmark"));
+            tag.put("architects", architects);
+
+            final CompoundNBT structurizeTag = new CompoundNBT();
+            BlockPosUtil.writeToNBT(structurizeTag, "primary_offset", new BlockPos(BLUEPRINT_SIZE / 2, 0, BLUEPRINT_SIZE / 2));
+            final CompoundNBT optionalTag = new CompoundNBT();
+            optionalTag.put(MOD_ID, structurizeTag);
+            tag.put("optional_data", optionalTag);
+            return tag;
+        }
+    }
+
+    /**
+     * A new, empty index folder per discovery.
+     */
+    @State(Scope.Benchmark)
+    public static class ColdIndex
+    {
+        private File folder;
+        private int  runs = 0;
+
+        @Setup(Level.Invocation)
+        public void create(final Pack pack) throws IOException
+        {
+            // Unloading saves the index of the previous run, which must not count towards this one.
+            BlueprintMetadataIndex.load(null);
+            folder = Files.createDirectories(pack.root.resolve("cold-index" + runs++)).toFile();
+        }
+    }
+
+    /**
+     * An index folder filled by a discovery of the pack before the measurement.
+     */
+    @State(Scope.Benchmark)
+    public static class WarmIndex
+    {
+        private File folder;
+
+        @Setup(Level.Trial)
+        public void fill(final Pack pack) throws IOException
+        {
+            folder = Files.createDirectories(pack.root.resolve("warm-index")).toFile();
+            BlueprintMetadataIndex.load(folder);
+            Structures.discoverSchematics(pack.base, Structures.SCHEMATICS_PREFIX);
+            BlueprintMetadataIndex.save();
+        }
+
+        @Setup(Level.Invocation)
+        public void unload()
+        {
+            // The index is read from disk again by each discovery.
+            BlueprintMetadataIndex.load(null);
+        }
+    }
+
+    @Benchmark
+    public int cold(final Pack pack, final ColdIndex index)
+    {
+        BlueprintMetadataIndex.load(index.folder);
+        return Structures.discoverSchematics(pack.base, Structures.SCHEMATICS_PREFIX).size();
+    }
+
+    @Benchmark
+    public int warm(final Pack pack, final WarmIndex index)
+    {
+        BlueprintMetadataIndex.load(index.folder);
+        return Structures.discoverSchematics(pack.base, Structures.SCHEMATICS_PREFIX).size();
+    }
+}
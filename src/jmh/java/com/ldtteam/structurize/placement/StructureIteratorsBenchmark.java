@@ -0,0 +1,138 @@
+package com.ldtteam.structurize.placement;
+
+import com.ldtteam.structures.blueprints.v1.Blueprint;
+import com.ldtteam.structurize.placement.structure.IStructureHandler;
+import net.minecraft.nbt.CompoundNBT;
+import net.minecraft.util.math.BlockPos;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks all registered {@link StructureIterators} on large footprints.
+ * A full pass measures the cost per placed block, resuming measures {@link AbstractBlueprintIterator#setProgressPos(BlockPos)} as used when loading saved progress.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class StructureIteratorsBenchmark
+{
+    /**
+     * The amount of positions resumed from.
+     */
+    private static final int RESUME_POSITIONS = 1024;
+
+    /**
+     * The id of the iterator, all iterators registered by default.
+     */
+    @Param({"default", "inwardcircle", "inwardcircleheight1", "inwardcircleheight2", "inwardcircleheight3", "inwardcircleheight4", "hilbert", "random"})
+    public String iterator;
+
+    /**
+     * The x and z size of the blueprint.
+     */
+    @Param({"64", "128", "256"})
+    public int footprint;
+
+    /**
+     * The y size of the blueprint.
+     */
+    @Param({"4"})
+    public int height;
+
+    /**
+     * A handler which only provides the blueprint, iterators only read its size.
+     */
+    private IStructureHandler handler;
+
+    /**
+     * The iterator which is resumed.
+     */
+    private AbstractBlueprintIterator resumed;
+
+    /**
+     * The positions resumed from and the next one to use.
+     */
+    private BlockPos[] resumePositions;
+    private int        nextResumePosition = 0;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        if (!StructureIterators.getKeySet().contains(iterator))
+        {
+            throw new IllegalStateException("Iterator " + iterator + " is not registered");
+        }
+
+        final short size = (short) footprint;
+        final short sizeY = (short) height;
+        // Iterators only read the size, so the blueprint stays empty and needs no palette.
+        final Blueprint blueprint =
+          new Blueprint(size, sizeY, size, (short) 0, new ArrayList<>(), new short[sizeY][size][size], new CompoundNBT[0], new ArrayList<>()) {};
+        handler = (IStructureHandler) Proxy.newProxyInstance(IStructureHandler.class.getClassLoader(), new Class<?>[] {IStructureHandler.class}, (proxy, method, args) -> {
+            if (method.getName().equals("getBluePrint"))
+            {
+                return blueprint;
+            }
+            throw new UnsupportedOperationException(method.getName());
+        });
+
+        resumed = StructureIterators.getIterator(iterator, handler);
+        final Random random = new Random(footprint);
+        resumePositions = new BlockPos[RESUME_POSITIONS];
+        for (int i = 0; i < resumePositions.length; i++)
+        {
+            resumePositions[i] = new BlockPos(random.nextInt(footprint), random.nextInt(height), random.nextInt(footprint));
+        }
+    }
+
+    /**
+     * Create an iterator and walk all positions of the blueprint.
+     *
+     * @return the amount of positions.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int fullPass()
+    {
+        final AbstractBlueprintIterator iterator = StructureIterators.getIterator(this.iterator, handler);
+        int count = 0;
+        while (iterator.increment() == AbstractBlueprintIterator.Result.NEW_BLOCK)
+        {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Resume at a saved position and take the next step.
+     *
+     * @return the position after the step.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public BlockPos resume()
+    {
+        resumed.setProgressPos(resumePositions[nextResumePosition]);
+        nextResumePosition = (nextResumePosition + 1) % resumePositions.length;
+        resumed.increment();
+        return resumed.progressPos;
+    }
+}
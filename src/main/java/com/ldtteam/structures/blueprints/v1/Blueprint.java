@@ -36,6 +36,8 @@ import static com.ldtteam.structurize.blocks.interfaces.IBlueprintDataProvider.*
 
 /**
  * The blueprint class which contains the file format for the schematics.
+ * The structure and tileEntity data are never modified by rotating or mirroring, instead every blueprint carries a horizontal transform
+ * which maps its (rotated) coordinates onto the stored data. Views with another transform can share the stored data, see {@link #withRotationAndMirror}.
  */
 public class Blueprint
 {
@@ -44,6 +46,11 @@ public class Blueprint
      */
     private static final String ENTITY_POS = "Pos";
 
+    /**
+     * Shared result for positions without entities.
+     */
+    private static final CompoundNBT[] NO_ENTITIES = new CompoundNBT[0];
+
     /**
      * The list of required mods.
      */
@@ -80,14 +87,36 @@ public class Blueprint
     private String[] missingMods;
 
     /**
-     * The Schematic Data, each short represents an entry in the {@link Blueprint#palette}
+     * The Schematic Data, each short represents an entry in the {@link Blueprint#palette}, in base coordinates.
+     */
+    private final short[][][] structure;
+
+    /**
+     * The tileentities, in base coordinates.
+     */
+    private final CompoundNBT[][][] tileEntities;
+
+    /**
+     * Horizontal transform from base to blueprint coordinates: x = m00 * baseX + m01 * baseZ + offsetX, z = m10 * baseX + m11 * baseZ + offsetZ.
+     */
+    private int m00 = 1, m01 = 0, m10 = 0, m11 = 1;
+    private int offsetX = 0, offsetZ = 0;
+
+    /**
+     * If this blueprint has been rotated or mirrored.
+     */
+    private boolean transformed = false;
+
+    /**
+     * Palette indices whose transformed state is a structure void, these positions are replaced with the first palette entry.
+     * Only set once transformed.
      */
-    private short[][][] structure;
+    private boolean[] voidIndices = null;
 
     /**
-     * The tileentities.
+     * Transformed copies of the tileEntity data by packed blueprint position, built lazily once transformed.
      */
-    private CompoundNBT[][][] tileEntities;
+    private Map<Long, CompoundNBT> transformedTileEntities = new HashMap<>();
 
     /**
      * The entities.
@@ -101,6 +130,11 @@ public class Blueprint
     private Map<BlockPos, BlockInfo> cacheBlockInfoMap = null;
     private Map<BlockPos, CompoundNBT[]> cacheEntitiesMap = null;
 
+    /**
+     * Sparse list of all positions which carry tileEntity data, built lazily.
+     */
+    private List<BlockInfo> cacheTileEntityInfo = null;
+
     /**
      * Cache for storing rotate/mirror anchor
      */
@@ -111,6 +145,11 @@ public class Blueprint
      */
     private BlockPos renderSource = BlockPos.ZERO;
 
+    /**
+     * Incremented whenever the blocks, the entities or the transform change.
+     */
+    private int modificationCount = 0;
+
     /**
      * Constructor of a new Blueprint.
      *
@@ -171,6 +210,39 @@ public class Blueprint
         this.palleteSize = 1;
     }
 
+    /**
+     * Create a view of another blueprint which shares its structure and tileEntity data.
+     *
+     * @param other the blueprint to copy.
+     */
+    private Blueprint(final Blueprint other)
+    {
+        this.requiredMods = other.requiredMods;
+        this.sizeX = other.sizeX;
+        this.sizeY = other.sizeY;
+        this.sizeZ = other.sizeZ;
+        this.palleteSize = other.palleteSize;
+        this.palette = new ArrayList<>(other.palette);
+        this.name = other.name;
+        this.architects = other.architects;
+        this.missingMods = other.missingMods;
+        this.structure = other.structure;
+        this.tileEntities = other.tileEntities;
+        this.m00 = other.m00;
+        this.m01 = other.m01;
+        this.m10 = other.m10;
+        this.m11 = other.m11;
+        this.offsetX = other.offsetX;
+        this.offsetZ = other.offsetZ;
+        this.transformed = other.transformed;
+        this.voidIndices = other.voidIndices == null ? null : other.voidIndices.clone();
+        this.transformedTileEntities = new HashMap<>(other.transformedTileEntities);
+        this.entities = other.entities;
+        this.cacheEntitiesMap = other.cacheEntitiesMap;
+        this.cachePrimaryOffset = other.cachePrimaryOffset;
+        this.renderSource = other.renderSource;
+    }
+
     /**
      * @return the Size of the Structure on the X-Axis (without rotation and/or mirroring)
      */
@@ -236,24 +308,100 @@ public class Blueprint
             this.palette.add(state);
         }
 
-        this.structure[pos.getY()][pos.getZ()][pos.getX()] = (short) index;
+        this.structure[pos.getY()][getBaseZ(pos.getX(), pos.getZ())][getBaseX(pos.getX(), pos.getZ())] = (short) index;
         cacheReset(true);
     }
 
     /**
-     * @return the structure (without rotation and/or mirroring) The Coordinate order is: y, z, x
+     * Get the structure data in the current rotation and mirror.
+     * Once transformed this is a freshly built copy, prefer {@link #getBlockState(int, int, int)} for lookups.
+     *
+     * @return the structure, the Coordinate order is: y, z, x
      */
     public short[][][] getStructure()
     {
-        return this.structure;
+        if (!transformed)
+        {
+            return this.structure;
+        }
+
+        final short[][][] result = new short[sizeY][sizeZ][sizeX];
+        for (int y = 0; y < sizeY; y++)
+        {
+            for (int z = 0; z < sizeZ; z++)
+            {
+                for (int x = 0; x < sizeX; x++)
+                {
+                    result[y][z][x] = (short) getPaletteIndex(x, y, z);
+                }
+            }
+        }
+        return result;
     }
 
     /**
+     * Get the tileEntity data in the current rotation and mirror.
+     * Once transformed this is a freshly built copy, prefer {@link #getRawTileEntityData(int, int, int)} for lookups.
+     *
      * @return an array of serialized TileEntities (posX, posY and posZ tags have been localized to coordinates within the structure)
      */
     public CompoundNBT[][][] getTileEntities()
     {
-        return this.tileEntities;
+        if (!transformed)
+        {
+            return this.tileEntities;
+        }
+
+        final CompoundNBT[][][] result = new CompoundNBT[sizeY][sizeZ][sizeX];
+        for (int y = 0; y < sizeY; y++)
+        {
+            for (int z = 0; z < sizeZ; z++)
+            {
+                for (int x = 0; x < sizeX; x++)
+                {
+                    result[y][z][x] = getRawTileEntityData(x, y, z);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Map a blueprint position onto the x coordinate of the stored data.
+     *
+     * @param x the x coordinate.
+     * @param z the z coordinate.
+     * @return the base x coordinate.
+     */
+    private int getBaseX(final int x, final int z)
+    {
+        return m00 * (x - offsetX) + m10 * (z - offsetZ);
+    }
+
+    /**
+     * Map a blueprint position onto the z coordinate of the stored data.
+     *
+     * @param x the x coordinate.
+     * @param z the z coordinate.
+     * @return the base z coordinate.
+     */
+    private int getBaseZ(final int x, final int z)
+    {
+        return m01 * (x - offsetX) + m11 * (z - offsetZ);
+    }
+
+    /**
+     * Get the palette index at a position inside the blueprint.
+     *
+     * @param x the x coordinate.
+     * @param y the y coordinate.
+     * @param z the z coordinate.
+     * @return the palette index.
+     */
+    private int getPaletteIndex(final int x, final int y, final int z)
+    {
+        final int index = structure[y][getBaseZ(x, z)][getBaseX(x, z)] & 0xFFFF;
+        return voidIndices != null && index < voidIndices.length && voidIndices[index] ? 0 : index;
     }
 
     /**
@@ -270,6 +418,8 @@ public class Blueprint
     public void setEntities(CompoundNBT[] entities)
     {
         this.entities = entities;
+        modificationCount++;
+        buildEntityCache();
     }
 
     /**
@@ -350,6 +500,7 @@ public class Blueprint
 
     /**
      * Get a list of all blockInfo objects in the blueprint.
+     * Compatibility view which holds one object per voxel, prefer {@link #getBlockState(BlockPos)} and {@link #getBlockInfo(BlockPos)}.
      *
      * @return a list of all blockinfo (position, blockState, tileEntityData).
      */
@@ -364,6 +515,7 @@ public class Blueprint
 
     /**
      * Get a map of all blockpos-blockInfo objects in the blueprint.
+     * Compatibility view which holds one object per voxel, prefer {@link #getBlockState(BlockPos)} and {@link #getBlockInfo(BlockPos)}.
      *
      * @return a map of all blockpos-blockInfo (position, blockState, tileEntityData).
      */
@@ -378,6 +530,7 @@ public class Blueprint
 
     /**
      * Get a map of all entities by approx position.
+     * Only positions which have at least one entity are contained.
      *
      * @return the cached map of these.
      */
@@ -385,11 +538,166 @@ public class Blueprint
     {
         if (cacheEntitiesMap == null)
         {
-            buildBlockInfoCaches();
+            buildEntityCache();
         }
         return cacheEntitiesMap;
     }
 
+    /**
+     * Get a list of the blockInfo objects of all positions which have tileEntity data.
+     *
+     * @return the sparse list of blockinfo (position, blockState, tileEntityData).
+     */
+    public final List<BlockInfo> getTileEntityInfoAsList()
+    {
+        if (cacheTileEntityInfo == null)
+        {
+            buildTileEntityCache();
+        }
+        return cacheTileEntityInfo;
+    }
+
+    /**
+     * Check if a local position is inside the blueprint.
+     *
+     * @param x the x coordinate.
+     * @param y the y coordinate.
+     * @param z the z coordinate.
+     * @return true if so.
+     */
+    public boolean isInBounds(final int x, final int y, final int z)
+    {
+        return x >= 0 && y >= 0 && z >= 0 && x < sizeX && y < sizeY && z < sizeZ;
+    }
+
+    /**
+     * Get the blockstate at a local position straight from the structure data.
+     *
+     * @param x the x coordinate.
+     * @param y the y coordinate.
+     * @param z the z coordinate.
+     * @return the blockstate or null if outside of the blueprint.
+     */
+    @Nullable
+    public BlockState getBlockState(final int x, final int y, final int z)
+    {
+        if (!isInBounds(x, y, z))
+        {
+            return null;
+        }
+        return palette.get(getPaletteIndex(x, y, z));
+    }
+
+    /**
+     * Get the palette index at a local position, the index points into {@link #getPalette()}.
+     *
+     * @param pos the position.
+     * @return the palette index or -1 if outside of the blueprint.
+     */
+    public int getPaletteIndex(final BlockPos pos)
+    {
+        if (!isInBounds(pos.getX(), pos.getY(), pos.getZ()))
+        {
+            return -1;
+        }
+        return getPaletteIndex(pos.getX(), pos.getY(), pos.getZ());
+    }
+
+    /**
+     * Get the raw tileEntity data at a local position (not copied, do not modify).
+     *
+     * @param x the x coordinate.
+     * @param y the y coordinate.
+     * @param z the z coordinate.
+     * @return the tileEntity compound or null if there is none.
+     */
+    @Nullable
+    public CompoundNBT getRawTileEntityData(final int x, final int y, final int z)
+    {
+        if (!isInBounds(x, y, z))
+        {
+            return null;
+        }
+
+        final int baseX = getBaseX(x, z);
+        final int baseZ = getBaseZ(x, z);
+        final CompoundNBT data = tileEntities[y][baseZ][baseX];
+        if (data == null || !transformed)
+        {
+            return data;
+        }
+        final int index = structure[y][baseZ][baseX] & 0xFFFF;
+        if (index < voidIndices.length && voidIndices[index])
+        {
+            return null;
+        }
+        return transformedTileEntities.computeIfAbsent(BlockPos.asLong(x, y, z), key -> transformTileEntity(data, x, y, z));
+    }
+
+    /**
+     * Create a copy of tileEntity data in the current rotation and mirror.
+     *
+     * @param data the stored data.
+     * @param x    the x coordinate in the blueprint.
+     * @param y    the y coordinate in the blueprint.
+     * @param z    the z coordinate in the blueprint.
+     * @return the transformed copy.
+     */
+    private CompoundNBT transformTileEntity(final CompoundNBT data, final int x, final int y, final int z)
+    {
+        final CompoundNBT compound = data.copy();
+        compound.putInt("x", x);
+        compound.putInt("y", y);
+        compound.putInt("z", z);
+
+        if (compound.contains(TAG_BLUEPRINTDATA))
+        {
+            final CompoundNBT dataCompound = compound.getCompound(TAG_BLUEPRINTDATA);
+
+            // Rotate tag map
+            final Map<BlockPos, List<String>> tagPosMap = IBlueprintDataProvider.readTagPosMapFrom(dataCompound);
+            final Map<BlockPos, List<String>> newTagPosMap = new HashMap<>();
+            for (final Map.Entry<BlockPos, List<String>> entry : tagPosMap.entrySet())
+            {
+                newTagPosMap.put(transformRelative(entry.getKey()), entry.getValue());
+            }
+            IBlueprintDataProvider.writeMapToCompound(dataCompound, newTagPosMap);
+
+            // Rotate corners
+            BlockPosUtil.writeToNBT(dataCompound, TAG_CORNER_ONE, transformRelative(BlockPosUtil.readFromNBT(dataCompound, TAG_CORNER_ONE)));
+            BlockPosUtil.writeToNBT(dataCompound, TAG_CORNER_TWO, transformRelative(BlockPosUtil.readFromNBT(dataCompound, TAG_CORNER_TWO)));
+        }
+        return compound;
+    }
+
+    /**
+     * Rotate and mirror a relative position with the horizontal transform, without the offset.
+     *
+     * @param pos the relative position.
+     * @return the transformed position.
+     */
+    private BlockPos transformRelative(final BlockPos pos)
+    {
+        return new BlockPos(m00 * pos.getX() + m01 * pos.getZ(), pos.getY(), m10 * pos.getX() + m11 * pos.getZ());
+    }
+
+    /**
+     * Get the blockInfo at a local position without going through the compatibility caches.
+     *
+     * @param pos the local position.
+     * @return the info or null if outside of the blueprint.
+     */
+    @Nullable
+    public BlockInfo getBlockInfo(final BlockPos pos)
+    {
+        final BlockState state = getBlockState(pos.getX(), pos.getY(), pos.getZ());
+        if (state == null)
+        {
+            return null;
+        }
+        return new BlockInfo(pos, state, getRawTileEntityData(pos.getX(), pos.getY(), pos.getZ()));
+    }
+
     /**
      * Getter of the EntityInfo at a certain position.
      *
@@ -400,12 +708,13 @@ public class Blueprint
     @Nullable
     public CompoundNBT getTileEntityData(@NotNull final BlockPos worldPos, final BlockPos structurePos)
     {
-        if (!getBlockInfoAsMap().containsKey(structurePos) || !getBlockInfoAsMap().get(structurePos).hasTileEntityData())
+        final CompoundNBT data = getRawTileEntityData(structurePos.getX(), structurePos.getY(), structurePos.getZ());
+        if (data == null)
         {
             return null;
         }
 
-        final CompoundNBT te = getBlockInfoAsMap().get(structurePos).getTileEntityData().copy();
+        final CompoundNBT te = data.copy();
         final BlockPos tePos = structurePos.offset(worldPos);
         te.putInt("x", tePos.getX());
         te.putInt("y", tePos.getY());
@@ -423,14 +732,13 @@ public class Blueprint
     public Item getItem(final BlockPos pos)
     {
         @Nullable
-        final BlockInfo info = this.getBlockInfoAsMap().getOrDefault(pos, null);
-        if (info == null || info.getState() == null || info.getState().getBlock() instanceof AirBlock
-            || info.getState().getMaterial().isLiquid())
+        final BlockState state = getBlockState(pos.getX(), pos.getY(), pos.getZ());
+        if (state == null || state.getBlock() instanceof AirBlock || state.getMaterial().isLiquid())
         {
             return null;
         }
 
-        final ItemStack stack = BlockUtils.getItemStackFromBlockState(info.getState());
+        final ItemStack stack = BlockUtils.getItemStackFromBlockState(state);
 
         if (!ItemStackUtils.isEmpty(stack))
         {
@@ -447,7 +755,6 @@ public class Blueprint
     {
         cacheBlockInfo = new ArrayList<>(getVolume());
         cacheBlockInfoMap = new HashMap<>(getVolume());
-        cacheEntitiesMap = new HashMap<>(getEntities().length);
         for (short y = 0; y < this.sizeY; y++)
         {
             for (short z = 0; z < this.sizeZ; z++)
@@ -455,13 +762,52 @@ public class Blueprint
                 for (short x = 0; x < this.sizeX; x++)
                 {
                     final BlockPos tempPos = new BlockPos(x, y, z);
-                    final BlockInfo blockInfo = new BlockInfo(tempPos, palette.get(structure[y][z][x] & 0xFFFF), tileEntities[y][z][x]);
+                    final BlockInfo blockInfo = new BlockInfo(tempPos, getBlockState(x, y, z), getRawTileEntityData(x, y, z));
                     cacheBlockInfo.add(blockInfo);
                     cacheBlockInfoMap.put(tempPos, blockInfo);
-                    cacheEntitiesMap.put(tempPos,
-                        Arrays.stream(this.getEntities())
-                            .filter(data -> data != null && isAtPos(data, tempPos))
-                            .toArray(CompoundNBT[]::new));
+                }
+            }
+        }
+    }
+
+    /**
+     * Build the entity cache, bucketing every entity once by its block position.
+     */
+    private void buildEntityCache()
+    {
+        final Map<BlockPos, List<CompoundNBT>> buckets = new HashMap<>();
+        for (final CompoundNBT data : this.entities)
+        {
+            if (data != null)
+            {
+                buckets.computeIfAbsent(getEntityBlockPos(data), key -> new ArrayList<>(1)).add(data);
+            }
+        }
+
+        cacheEntitiesMap = new HashMap<>(buckets.size());
+        for (final Map.Entry<BlockPos, List<CompoundNBT>> entry : buckets.entrySet())
+        {
+            cacheEntitiesMap.put(entry.getKey(), entry.getValue().toArray(NO_ENTITIES));
+        }
+    }
+
+    /**
+     * Build the sparse tileEntity cache.
+     */
+    private void buildTileEntityCache()
+    {
+        cacheTileEntityInfo = new ArrayList<>();
+        for (short y = 0; y < this.sizeY; y++)
+        {
+            for (short z = 0; z < this.sizeZ; z++)
+            {
+                for (short x = 0; x < this.sizeX; x++)
+                {
+                    final CompoundNBT te = getRawTileEntityData(x, y, z);
+                    if (te != null)
+                    {
+                        cacheTileEntityInfo.add(new BlockInfo(new BlockPos(x, y, z), getBlockState(x, y, z), te));
+                    }
                 }
             }
         }
@@ -498,16 +844,42 @@ public class Blueprint
      */
     private BlockPos findPrimaryBlockOffset()
     {
-        final List<BlockInfo> list = getBlockInfoAsList().stream()
-                                       .filter(blockInfo -> blockInfo.getState().getBlock() instanceof IAnchorBlock
-                                                              || (blockInfo.hasTileEntityData() && blockInfo.getTileEntityData().contains(TAG_BLUEPRINTDATA)))
-            .collect(Collectors.toList());
+        BlockPos found = null;
+        for (short y = 0; y < this.sizeY; y++)
+        {
+            for (short z = 0; z < this.sizeZ; z++)
+            {
+                for (short x = 0; x < this.sizeX; x++)
+                {
+                    final CompoundNBT te = getRawTileEntityData(x, y, z);
+                    if (getBlockState(x, y, z).getBlock() instanceof IAnchorBlock || (te != null && te.contains(TAG_BLUEPRINTDATA)))
+                    {
+                        if (found != null)
+                        {
+                            return new BlockPos(getSizeX() / 2, 0, getSizeZ() / 2);
+                        }
+                        found = new BlockPos(x, y, z);
+                    }
+                }
+            }
+        }
 
-        if (list.size() != 1)
+        if (found == null)
         {
             return new BlockPos(getSizeX() / 2, 0, getSizeZ() / 2);
         }
-        return list.get(0).getPos();
+        return found;
+    }
+
+    /**
+     * Get the modification count, it changes whenever the blocks, the entities or the transform of this blueprint change.
+     * Views created by {@link #createView()} count on their own.
+     *
+     * @return the modification count.
+     */
+    public int getModificationCount()
+    {
+        return modificationCount;
     }
 
     /**
@@ -517,17 +889,19 @@ public class Blueprint
      */
     private void cacheReset(final boolean resetPrimaryOffset)
     {
+        modificationCount++;
         cacheBlockInfo = null;
         if (resetPrimaryOffset)
         {
             cachePrimaryOffset = null;
         }
         cacheBlockInfoMap = null;
-        cacheEntitiesMap = null;
+        cacheTileEntityInfo = null;
     }
 
     /**
      * Rotate the structure depending on the direction it's facing.
+     * Only the palette, the entities and the coordinate transform are updated, the structure data is left untouched.
      *
      * @param rotation times to rotateWithMirror.
      * @param mirror   the mirror.
@@ -537,80 +911,46 @@ public class Blueprint
     {
         final BlockPos primaryOffset = getPrimaryBlockOffset();
         final BlockPos resultSize = transformedSize(new BlockPos(sizeX, sizeY, sizeZ), rotation);
-        final short newSizeX = (short) resultSize.getX();
-        final short newSizeY = (short) resultSize.getY();
-        final short newSizeZ = (short) resultSize.getZ();
-
-        final short[][][] newStructure = new short[newSizeY][newSizeZ][newSizeX];
-        final CompoundNBT[] newEntities = new CompoundNBT[entities.length];
-        final CompoundNBT[][][] newTileEntities = new CompoundNBT[newSizeY][newSizeZ][newSizeX];
-
-        final List<BlockState> palette = new ArrayList<>();
-        for (int i = 0; i < this.palette.size(); i++)
-        {
-            palette.add(i, this.palette.get(i).mirror(mirror).rotate(rotation));
-        }
 
         final BlockPos extremes = transformedBlockPos(sizeX, sizeY, sizeZ, mirror, rotation);
         int minX = extremes.getX() < 0 ? -extremes.getX() - 1 : 0;
         int minY = extremes.getY() < 0 ? -extremes.getY() - 1 : 0;
         int minZ = extremes.getZ() < 0 ? -extremes.getZ() - 1 : 0;
 
-        this.palette = palette;
-
-        for (short x = 0; x < this.sizeX; x++)
+        // Compose the step with the current transform, the step maps the x and z axes onto these vectors.
+        final BlockPos stepX = transformedBlockPos(1, 0, 0, mirror, rotation);
+        final BlockPos stepZ = transformedBlockPos(0, 0, 1, mirror, rotation);
+        final int n00 = stepX.getX() * m00 + stepZ.getX() * m10;
+        final int n01 = stepX.getX() * m01 + stepZ.getX() * m11;
+        final int n10 = stepX.getZ() * m00 + stepZ.getZ() * m10;
+        final int n11 = stepX.getZ() * m01 + stepZ.getZ() * m11;
+        final int newOffsetX = stepX.getX() * offsetX + stepZ.getX() * offsetZ + minX;
+        final int newOffsetZ = stepX.getZ() * offsetX + stepZ.getZ() * offsetZ + minZ;
+        m00 = n00;
+        m01 = n01;
+        m10 = n10;
+        m11 = n11;
+        offsetX = newOffsetX;
+        offsetZ = newOffsetZ;
+
+        // Palettes commonly repeat states, transform each distinct state once.
+        final Map<BlockState, BlockState> transformedStates = new IdentityHashMap<>();
+        final List<BlockState> palette = new ArrayList<>(this.palette.size());
+        if (voidIndices == null)
         {
-            for (short y = 0; y < this.sizeY; y++)
-            {
-                for (short z = 0; z < this.sizeZ; z++)
-                {
-                    final BlockPos tempPos = transformedBlockPos(x, y, z, mirror, rotation).offset(minX, minY, minZ);
-                    final short value = structure[y][z][x];
-                    final BlockState state = palette.get(value & 0xFFFF);
-                    if (state.getBlock() == Blocks.STRUCTURE_VOID)
-                    {
-                        continue;
-                    }
-                    newStructure[tempPos.getY()][tempPos.getZ()][tempPos.getX()] = value;
-
-                    final CompoundNBT compound = tileEntities[y][z][x];
-                    if (compound != null)
-                    {
-                        compound.putInt("x", tempPos.getX());
-                        compound.putInt("y", tempPos.getY());
-                        compound.putInt("z", tempPos.getZ());
-
-                        if (compound.contains(TAG_BLUEPRINTDATA))
-                        {
-                            CompoundNBT dataCompound = compound.getCompound(TAG_BLUEPRINTDATA);
-
-                            // Rotate tag map
-                            final Map<BlockPos, List<String>> tagPosMap = IBlueprintDataProvider.readTagPosMapFrom(dataCompound);
-                            final Map<BlockPos, List<String>> newTagPosMap = new HashMap<>();
-
-                            for (Map.Entry<BlockPos, List<String>> entry : tagPosMap.entrySet())
-                            {
-                                BlockPos newPos = transformedBlockPos(entry.getKey()
-                                    .getX(), entry.getKey().getY(), entry.getKey().getZ(), mirror, rotation);
-                                newTagPosMap.put(newPos, entry.getValue());
-                            }
-
-                            IBlueprintDataProvider.writeMapToCompound(dataCompound, newTagPosMap);
-
-                            // Rotate corners
-                            BlockPos corner1 = BlockPosUtil.readFromNBT(dataCompound, TAG_CORNER_ONE);
-                            BlockPos corner2 = BlockPosUtil.readFromNBT(dataCompound, TAG_CORNER_TWO);
-                            corner1 = transformedBlockPos(corner1.getX(), corner1.getY(), corner1.getZ(), mirror, rotation);
-                            corner2 = transformedBlockPos(corner2.getX(), corner2.getY(), corner2.getZ(), mirror, rotation);
-                            BlockPosUtil.writeToNBT(dataCompound, TAG_CORNER_ONE, corner1);
-                            BlockPosUtil.writeToNBT(dataCompound, TAG_CORNER_TWO, corner2);
-                        }
-                    }
-                    newTileEntities[tempPos.getY()][tempPos.getZ()][tempPos.getX()] = compound;
-                }
-            }
+            voidIndices = new boolean[this.palette.size()];
         }
+        for (int i = 0; i < this.palette.size(); i++)
+        {
+            final BlockState state = transformedStates.computeIfAbsent(this.palette.get(i), key -> key.mirror(mirror).rotate(rotation));
+            palette.add(i, state);
+            voidIndices[i] |= state.getBlock() == Blocks.STRUCTURE_VOID;
+        }
+        this.palette = palette;
+        this.transformed = true;
+        this.transformedTileEntities = new HashMap<>();
 
+        final CompoundNBT[] newEntities = new CompoundNBT[entities.length];
         for (int i = 0; i < entities.length; i++)
         {
             final CompoundNBT entitiesCompound = entities[i];
@@ -624,15 +964,41 @@ public class Blueprint
 
         setCachePrimaryOffset(newOffsetPos.offset(minX, minY, minZ));
 
-        sizeX = newSizeX;
-        sizeY = newSizeY;
-        sizeZ = newSizeZ;
+        sizeX = (short) resultSize.getX();
+        sizeY = (short) resultSize.getY();
+        sizeZ = (short) resultSize.getZ();
 
-        this.structure = newStructure;
         this.entities = newEntities;
-        this.tileEntities = newTileEntities;
 
         cacheReset(false);
+        buildEntityCache();
+    }
+
+    /**
+     * Create a view of this blueprint in its current rotation and mirror.
+     * The view shares the structure and tileEntity data with this blueprint, rotating or mirroring it leaves this blueprint unchanged.
+     *
+     * @return the new view.
+     */
+    public Blueprint createView()
+    {
+        return new Blueprint(this);
+    }
+
+    /**
+     * Create a rotated and mirrored view of this blueprint.
+     * The view shares the structure and tileEntity data with this blueprint, which stays unchanged.
+     *
+     * @param rotation the rotation.
+     * @param mirror   the mirror.
+     * @param world    the world.
+     * @return the new view.
+     */
+    public Blueprint withRotationAndMirror(final Rotation rotation, final Mirror mirror, final World world)
+    {
+        final Blueprint view = createView();
+        view.rotateWithMirror(rotation, mirror, world);
+        return view;
     }
 
     /**
@@ -853,34 +1219,34 @@ public class Blueprint
     public BlueprintPositionInfo getBluePrintPositionInfo(final BlockPos pos, final boolean includeEntities)
     {
         return new BlueprintPositionInfo(pos,
-            getBlockInfoAsMap().get(pos),
-            includeEntities ? getCachedEntitiesAsMap().getOrDefault(pos, new CompoundNBT[0]) : new CompoundNBT[0]);
+            getBlockInfo(pos),
+            includeEntities ? getCachedEntitiesAsMap().getOrDefault(pos, NO_ENTITIES) : NO_ENTITIES);
     }
 
     /**
-     * Check if an entityData object is at the local position.
+     * Get the local block position an entityData object is at.
      * 
      * @param entityData the data object to check.
-     * @param pos        the pos to check.
-     * @return true if so.
+     * @return the block position.
      */
-    private boolean isAtPos(@NotNull final CompoundNBT entityData, final BlockPos pos)
+    private static BlockPos getEntityBlockPos(@NotNull final CompoundNBT entityData)
     {
         final ListNBT list = entityData.getList(ENTITY_POS, 6);
         final int x = (int) list.getDouble(0);
         final int y = (int) list.getDouble(1);
         final int z = (int) list.getDouble(2);
-        return new BlockPos(x, y, z).equals(pos);
+        return new BlockPos(x, y, z);
     }
 
     /**
      * Get the blockstate at a pos.
      * 
      * @param pos the pos.
-     * @return the blockstate.
+     * @return the blockstate or null if outside of the blueprint.
      */
+    @Nullable
     public BlockState getBlockState(final BlockPos pos)
     {
-        return getBlockInfoAsMap().get(pos).getState();
+        return getBlockState(pos.getX(), pos.getY(), pos.getZ());
     }
 }
@@ -0,0 +1,226 @@
+package com.ldtteam.structures.blueprints.v1;
+
+import net.minecraft.nbt.CompoundNBT;
+import net.minecraft.nbt.ListNBT;
+import net.minecraft.nbt.NBTUtil;
+import net.minecraft.nbt.StringNBT;
+import net.minecraft.util.math.BlockPos;
+import net.minecraftforge.common.util.Constants;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The header fields of a blueprint, everything listings need without the block, tileEntity and entity data.
+ * See {@link BlueprintUtil#readBlueprintMetadata(java.io.InputStream)}.
+ */
+public class BlueprintMetadata
+{
+    /**
+     * The tags the metadata is stored with in the metadata index.
+     */
+    private static final String TAG_NAME           = "name";
+    private static final String TAG_SIZE_X         = "size_x";
+    private static final String TAG_SIZE_Y         = "size_y";
+    private static final String TAG_SIZE_Z         = "size_z";
+    private static final String TAG_REQUIRED_MODS  = "required_mods";
+    private static final String TAG_ARCHITECTS     = "architects";
+    private static final String TAG_PRIMARY_OFFSET = "primary_offset";
+
+    /**
+     * The name of the blueprint or null if it has none.
+     */
+    @Nullable
+    private final String name;
+
+    /**
+     * The size of the blueprint.
+     */
+    private final short sizeX, sizeY, sizeZ;
+
+    /**
+     * The mods the blueprint requires.
+     */
+    private final List<String> requiredMods;
+
+    /**
+     * The architects or null if there are none.
+     */
+    @Nullable
+    private final String[] architects;
+
+    /**
+     * The stored primary offset or null if the file does not contain it.
+     */
+    @Nullable
+    private final BlockPos primaryOffset;
+
+    /**
+     * Create the metadata of a blueprint.
+     *
+     * @param name          the name or null.
+     * @param sizeX         the size on the X-Axis.
+     * @param sizeY         the size on the Y-Axis.
+     * @param sizeZ         the size on the Z-Axis.
+     * @param requiredMods  the required mods.
+     * @param architects    the architects or null.
+     * @param primaryOffset the stored primary offset or null.
+     */
+    public BlueprintMetadata(
+      @Nullable final String name,
+      final short sizeX,
+      final short sizeY,
+      final short sizeZ,
+      final List<String> requiredMods,
+      @Nullable final String[] architects,
+      @Nullable final BlockPos primaryOffset)
+    {
+        this.name = name;
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+        this.requiredMods = Collections.unmodifiableList(new ArrayList<>(requiredMods));
+        this.architects = architects;
+        this.primaryOffset = primaryOffset;
+    }
+
+    /**
+     * @return the name of the blueprint or null if it has none.
+     */
+    @Nullable
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * @return the size on the X-Axis.
+     */
+    public short getSizeX()
+    {
+        return sizeX;
+    }
+
+    /**
+     * @return the size on the Y-Axis.
+     */
+    public short getSizeY()
+    {
+        return sizeY;
+    }
+
+    /**
+     * @return the size on the Z-Axis.
+     */
+    public short getSizeZ()
+    {
+        return sizeZ;
+    }
+
+    /**
+     * @return the mods the blueprint requires.
+     */
+    public List<String> getRequiredMods()
+    {
+        return requiredMods;
+    }
+
+    /**
+     * @return the architects or null if there are none.
+     */
+    @Nullable
+    public String[] getArchitects()
+    {
+        return architects;
+    }
+
+    /**
+     * Get the primary offset stored in the file.
+     * Older files do not store it, the blueprint has to be loaded to search for the anchor then.
+     *
+     * @return the offset or null if the file does not contain it.
+     */
+    @Nullable
+    public BlockPos getPrimaryOffset()
+    {
+        return primaryOffset;
+    }
+
+    /**
+     * Serialize the metadata for the metadata index.
+     *
+     * @return the tag.
+     */
+    public CompoundNBT writeToNBT()
+    {
+        final CompoundNBT tag = new CompoundNBT();
+        if (name != null)
+        {
+            tag.putString(TAG_NAME, name);
+        }
+        tag.putShort(TAG_SIZE_X, sizeX);
+        tag.putShort(TAG_SIZE_Y, sizeY);
+        tag.putShort(TAG_SIZE_Z, sizeZ);
+        tag.put(TAG_REQUIRED_MODS, toList(requiredMods.toArray(new String[0])));
+        if (architects != null)
+        {
+            tag.put(TAG_ARCHITECTS, toList(architects));
+        }
+        if (primaryOffset != null)
+        {
+            tag.put(TAG_PRIMARY_OFFSET, NBTUtil.writeBlockPos(primaryOffset));
+        }
+        return tag;
+    }
+
+    /**
+     * Deserialize metadata written by {@link #writeToNBT()}.
+     *
+     * @param tag the tag.
+     * @return the metadata.
+     */
+    public static BlueprintMetadata readFromNBT(final CompoundNBT tag)
+    {
+        return new BlueprintMetadata(tag.contains(TAG_NAME) ? tag.getString(TAG_NAME) : null,
+          tag.getShort(TAG_SIZE_X),
+          tag.getShort(TAG_SIZE_Y),
+          tag.getShort(TAG_SIZE_Z),
+          toStrings(tag.getList(TAG_REQUIRED_MODS, Constants.NBT.TAG_STRING)),
+          tag.contains(TAG_ARCHITECTS) ? toStrings(tag.getList(TAG_ARCHITECTS, Constants.NBT.TAG_STRING)).toArray(new String[0]) : null,
+          tag.contains(TAG_PRIMARY_OFFSET) ? NBTUtil.readBlockPos(tag.getCompound(TAG_PRIMARY_OFFSET)) : null);
+    }
+
+    /**
+     * Convert strings to a string list tag.
+     *
+     * @param strings the strings.
+     * @return the list tag.
+     */
+    private static ListNBT toList(final String[] strings)
+    {
+        final ListNBT list = new ListNBT();
+        for (final String string : strings)
+        {
+            list.add(StringNBT.valueOf(string));
+        }
+        return list;
+    }
+
+    /**
+     * Convert a list tag to strings.
+     *
+     * @param list the list tag.
+     * @return the strings.
+     */
+    private static List<String> toStrings(final ListNBT list)
+    {
+        final List<String> strings = new ArrayList<>();
+        for (int i = 0; i < list.size(); i++)
+        {
+            strings.add(list.getString(i));
+        }
+        return strings;
+    }
+}
@@ -0,0 +1,127 @@
+package com.ldtteam.structures.blueprints.v1;
+
+import it.unimi.dsi.fastutil.objects.Object2BooleanOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ShortOpenHashMap;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraftforge.fml.ModList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.ldtteam.structurize.api.util.constant.Constants.MOD_ID;
+
+/**
+ * Incrementally builds the palette of a blueprint while scanning.
+ * Blockstates are interned by the game, so lookups are done by identity.
+ */
+public class BlueprintPaletteBuilder
+{
+    /**
+     * Index returned for states of mods which are not loaded.
+     */
+    public static final short MISSING = -1;
+
+    /**
+     * The palette in insertion order, air is always at index 0.
+     */
+    private final List<BlockState> palette = new ArrayList<>();
+
+    /**
+     * Reverse lookup from state to palette index.
+     */
+    private final Reference2ShortOpenHashMap<BlockState> indices = new Reference2ShortOpenHashMap<>();
+
+    /**
+     * Cache of namespace to mod presence.
+     */
+    private final Object2BooleanOpenHashMap<String> loadedNamespaces = new Object2BooleanOpenHashMap<>();
+
+    /**
+     * The mods the palette requires, in discovery order.
+     */
+    private final List<String> requiredMods = new ArrayList<>();
+
+    /**
+     * Create a new palette builder with air at index 0.
+     */
+    public BlueprintPaletteBuilder()
+    {
+        indices.defaultReturnValue(Short.MIN_VALUE);
+        palette.add(Blocks.AIR.defaultBlockState());
+        indices.put(Blocks.AIR.defaultBlockState(), (short) 0);
+    }
+
+    /**
+     * Get the palette index of a state, adding it to the palette if required.
+     *
+     * @param state the state.
+     * @return the index or {@link #MISSING} if the state belongs to a mod which is not loaded.
+     */
+    public short getOrAdd(final BlockState state)
+    {
+        final short index = indices.getShort(state);
+        if (index != Short.MIN_VALUE)
+        {
+            return index;
+        }
+
+        final String modName = state.getBlock().getRegistryName().getNamespace();
+        if (!modName.equals("minecraft") && !modName.equals(MOD_ID))
+        {
+            if (!isNamespaceLoaded(modName))
+            {
+                indices.put(state, MISSING);
+                return MISSING;
+            }
+            if (!requiredMods.contains(modName))
+            {
+                requiredMods.add(modName);
+            }
+        }
+
+        final short newIndex = (short) palette.size();
+        palette.add(state);
+        indices.put(state, newIndex);
+        return newIndex;
+    }
+
+    /**
+     * Check if a namespace belongs to a loaded mod, caching the result.
+     *
+     * @param namespace the namespace.
+     * @return true if so.
+     */
+    private boolean isNamespaceLoaded(final String namespace)
+    {
+        if (!loadedNamespaces.containsKey(namespace))
+        {
+            loadedNamespaces.put(namespace, ModList.get().getModContainerById(namespace).isPresent());
+        }
+        return loadedNamespaces.getBoolean(namespace);
+    }
+
+    /**
+     * @return the palette built so far.
+     */
+    public List<BlockState> getPalette()
+    {
+        return palette;
+    }
+
+    /**
+     * @return the amount of states in the palette.
+     */
+    public short getPaletteSize()
+    {
+        return (short) palette.size();
+    }
+
+    /**
+     * @return the required mods discovered so far.
+     */
+    public List<String> getRequiredMods()
+    {
+        return requiredMods;
+    }
+}
@@ -0,0 +1,741 @@
+package com.ldtteam.structures.blueprints.v1;
+
+import com.ldtteam.structurize.api.util.Log;
+import com.ldtteam.structurize.blocks.interfaces.IAnchorBlock;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import net.minecraft.block.BlockState;
+import net.minecraft.nbt.*;
+import net.minecraft.util.math.BlockPos;
+import net.minecraftforge.common.util.Constants;
+import net.minecraftforge.fml.ModList;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+import java.util.*;
+
+import static com.ldtteam.structurize.blocks.interfaces.IBlueprintDataProvider.TAG_BLUEPRINTDATA;
+
+/**
+ * A blueprint split into regions of 16x16x16 blocks, for blueprints which are too large to be kept in memory as a whole.
+ * The compressed file is decoded once and the block, tileEntity and entity data of every region is written to a temporary region file.
+ * Only the header and the palette stay in memory, regions are loaded one at a time as small blueprints, see {@link #loadRegion(int)}.
+ * Regions are ordered bottom to top, layer by layer.
+ */
+public class BlueprintRegions implements Closeable
+{
+    /**
+     * The edge length of a region.
+     */
+    public static final int REGION_SIZE = 16;
+
+    /**
+     * The root tags read in the first pass, the header and the tags describing the block encoding.
+     */
+    private static final Set<String> FIRST_PASS_TAGS = new HashSet<>(BlueprintStreamReader.HEADER_TAGS);
+    static
+    {
+        FIRST_PASS_TAGS.addAll(Arrays.asList("mcversion", BlueprintUtil.NBT_BLOCK_BITS, BlueprintUtil.NBT_BLOCK_RUN_BITS, BlueprintUtil.NBT_BLOCK_RUN_COUNT));
+    }
+
+    /**
+     * The header of the blueprint.
+     */
+    private final BlueprintMetadata metadata;
+
+    /**
+     * The size of the blueprint.
+     */
+    private final short sizeX, sizeY, sizeZ;
+
+    /**
+     * The amount of regions along each axis.
+     */
+    private final int regionsX, regionsY, regionsZ;
+
+    /**
+     * The palette of the blueprint, shared by all regions.
+     */
+    private List<BlockState> palette = Collections.emptyList();
+
+    /**
+     * The mods of the required mods which are not loaded.
+     */
+    private final String[] missingMods;
+
+    /**
+     * The primary offset of the whole blueprint.
+     */
+    private BlockPos primaryOffset;
+
+    /**
+     * The temporary file the region data is stored in.
+     */
+    private final File regionFile;
+
+    /**
+     * Offset of the block data of each region in the region file, -1 if the region is air only.
+     */
+    private final long[] blockOffsets;
+
+    /**
+     * Offsets of the tileEntity and entity tags of each region in the region file, null if the region has none.
+     */
+    private final LongArrayList[] tileEntityOffsets;
+    private final LongArrayList[] entityOffsets;
+
+    /**
+     * The region file opened for reading, null until the file is written.
+     */
+    private RandomAccessFile reader = null;
+
+    /**
+     * Create the region container of a blueprint.
+     *
+     * @param metadata   the header of the blueprint.
+     * @param regionFile the temporary region file.
+     */
+    private BlueprintRegions(final BlueprintMetadata metadata, final File regionFile)
+    {
+        this.metadata = metadata;
+        this.sizeX = metadata.getSizeX();
+        this.sizeY = metadata.getSizeY();
+        this.sizeZ = metadata.getSizeZ();
+        this.regionsX = (sizeX + REGION_SIZE - 1) / REGION_SIZE;
+        this.regionsY = (sizeY + REGION_SIZE - 1) / REGION_SIZE;
+        this.regionsZ = (sizeZ + REGION_SIZE - 1) / REGION_SIZE;
+        this.regionFile = regionFile;
+        this.blockOffsets = new long[getRegionCount()];
+        this.tileEntityOffsets = new LongArrayList[getRegionCount()];
+        this.entityOffsets = new LongArrayList[getRegionCount()];
+        Arrays.fill(blockOffsets, -1);
+
+        final List<String> missing = new ArrayList<>();
+        for (final String mod : metadata.getRequiredMods())
+        {
+            if (!mod.equals("minecraft") && !ModList.get().getModContainerById(mod).isPresent())
+            {
+                missing.add(mod);
+            }
+        }
+        this.missingMods = missing.toArray(new String[0]);
+    }
+
+    /**
+     * Split a compressed blueprint file into regions.
+     * The file is decoded twice, first only the header and then the data, so the block data never has to be held in memory as a whole.
+     *
+     * @param compressed the compressed file content.
+     * @return the regions or null if the blueprint can not be read region by region, it has to be loaded as a whole then.
+     * @throws IOException if the file is no valid blueprint or the region file could not be written.
+     */
+    @Nullable
+    public static BlueprintRegions read(final byte[] compressed) throws IOException
+    {
+        final CompoundNBT header = BlueprintStreamReader.readTags(new ByteArrayInputStream(compressed), FIRST_PASS_TAGS);
+        final BlueprintMetadata metadata = BlueprintUtil.readMetadata(header);
+        // Blueprints from before the flattening need the block data of the whole structure to be fixed.
+        if (metadata == null || !header.contains("mcversion"))
+        {
+            return null;
+        }
+
+        final File regionFile = File.createTempFile("structurize_regions", ".tmp");
+        regionFile.deleteOnExit();
+        final BlueprintRegions regions = new BlueprintRegions(metadata, regionFile);
+        try
+        {
+            regions.write(compressed, header);
+            regions.reader = new RandomAccessFile(regionFile, "r");
+            regions.primaryOffset = metadata.getPrimaryOffset() != null ? metadata.getPrimaryOffset() : regions.findPrimaryOffset();
+            return regions;
+        }
+        catch (final IOException | RuntimeException e)
+        {
+            regions.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Decode the data of the blueprint into the region file.
+     *
+     * @param compressed the compressed file content.
+     * @param header     the tags read in the first pass.
+     * @throws IOException if reading or writing failed.
+     */
+    private void write(final byte[] compressed, final CompoundNBT header) throws IOException
+    {
+        final int dataVersion = header.getInt("mcversion");
+        final boolean packed = header.getByte("version") == BlueprintUtil.VERSION_2;
+        final int bits = header.getByte(BlueprintUtil.NBT_BLOCK_BITS);
+
+        try (DataInputStream in = BlueprintStreamReader.open(new ByteArrayInputStream(compressed));
+             RegionWriter out = new RegionWriter(new DataOutputStream(new BufferedOutputStream(new FileOutputStream(regionFile)))))
+        {
+            long[] runValues = null;
+            long[] runLengths = null;
+
+            byte type;
+            while ((type = in.readByte()) != Constants.NBT.TAG_END)
+            {
+                final String key = in.readUTF();
+                if (key.equals("blocks") && type == Constants.NBT.TAG_INT_ARRAY && !packed)
+                {
+                    final int length = in.readInt();
+                    for (int i = 0; i < length; i++)
+                    {
+                        final int value = in.readInt();
+                        out.accept((short) (value >> 16));
+                        out.accept((short) value);
+                    }
+                }
+                else if (key.equals("blocks") && type == Constants.NBT.TAG_LONG_ARRAY && packed && !header.contains(BlueprintUtil.NBT_BLOCK_RUN_COUNT))
+                {
+                    final int perLong = Long.SIZE / bits;
+                    final long mask = (1L << bits) - 1;
+                    final int length = in.readInt();
+                    for (int i = 0; i < length; i++)
+                    {
+                        final long value = in.readLong();
+                        for (int j = 0; j < perLong; j++)
+                        {
+                            out.accept((short) ((value >> (j * bits)) & mask));
+                        }
+                    }
+                }
+                else if (key.equals("blocks") && type == Constants.NBT.TAG_LONG_ARRAY && packed)
+                {
+                    runValues = ((LongArrayNBT) NBTTypes.getType(type).load(in, 1, NBTSizeTracker.UNLIMITED)).getAsLongArray();
+                }
+                else if (key.equals(BlueprintUtil.NBT_BLOCK_RUNS) && type == Constants.NBT.TAG_LONG_ARRAY)
+                {
+                    runLengths = ((LongArrayNBT) NBTTypes.getType(type).load(in, 1, NBTSizeTracker.UNLIMITED)).getAsLongArray();
+                }
+                else if (key.equals("palette") && type == Constants.NBT.TAG_LIST)
+                {
+                    palette = BlueprintUtil.fixPalette(dataVersion, (ListNBT) NBTTypes.getType(type).load(in, 1, NBTSizeTracker.UNLIMITED));
+                }
+                else if ((key.equals("tile_entities") || key.equals("entities")) && type == Constants.NBT.TAG_LIST)
+                {
+                    final boolean isTileEntity = key.equals("tile_entities");
+                    final byte elementType = in.readByte();
+                    final int length = in.readInt();
+                    for (int i = 0; i < length; i++)
+                    {
+                        final INBT element = NBTTypes.getType(elementType).load(in, 1, NBTSizeTracker.UNLIMITED);
+                        if (element instanceof CompoundNBT)
+                        {
+                            final ListNBT single = new ListNBT();
+                            single.add(element);
+                            final CompoundNBT fixed = (isTileEntity ? BlueprintUtil.fixTileEntities(dataVersion, single) : BlueprintUtil.fixEntities(dataVersion, single))[0];
+                            if (fixed != null)
+                            {
+                                out.writeTag(fixed, isTileEntity);
+                            }
+                        }
+                    }
+                }
+                else
+                {
+                    BlueprintStreamReader.skipPayload(in, type);
+                }
+            }
+
+            if (runValues != null && runLengths != null)
+            {
+                final int runs = header.getInt(BlueprintUtil.NBT_BLOCK_RUN_COUNT);
+                final BitArrayReader values = new BitArrayReader(runValues, bits);
+                final BitArrayReader lengths = new BitArrayReader(runLengths, header.getByte(BlueprintUtil.NBT_BLOCK_RUN_BITS));
+                for (int run = 0; run < runs && !out.isFull(); run++)
+                {
+                    final short value = (short) values.get(run);
+                    for (long i = lengths.get(run); i >= 0 && !out.isFull(); i--)
+                    {
+                        out.accept(value);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Find the primary offset the same way {@link Blueprint#getPrimaryBlockOffset()} does, for files which do not store it.
+     *
+     * @return the offset.
+     * @throws IOException if the region file could not be read.
+     */
+    private BlockPos findPrimaryOffset() throws IOException
+    {
+        final Set<BlockPos> anchors = new HashSet<>();
+        final boolean[] anchorIndices = new boolean[palette.size()];
+        for (int i = 0; i < palette.size(); i++)
+        {
+            anchorIndices[i] = palette.get(i).getBlock() instanceof IAnchorBlock;
+        }
+
+        for (int region = 0; region < getRegionCount() && anchors.size() < 2; region++)
+        {
+            final BlockPos origin = getRegionOrigin(region);
+            if (tileEntityOffsets[region] != null)
+            {
+                for (final CompoundNBT te : readTags(tileEntityOffsets[region]))
+                {
+                    if (te.contains(TAG_BLUEPRINTDATA))
+                    {
+                        anchors.add(new BlockPos(te.getShort("x"), te.getShort("y"), te.getShort("z")));
+                    }
+                }
+            }
+
+            final short[][][] blocks = readBlocks(region);
+            for (int y = 0; y < blocks.length; y++)
+            {
+                for (int z = 0; z < blocks[y].length; z++)
+                {
+                    for (int x = 0; x < blocks[y][z].length; x++)
+                    {
+                        final short index = blocks[y][z][x];
+                        if (index >= 0 && index < anchorIndices.length && anchorIndices[index])
+                        {
+                            anchors.add(origin.offset(x, y, z));
+                        }
+                    }
+                }
+            }
+        }
+
+        return anchors.size() == 1 ? anchors.iterator().next() : new BlockPos(sizeX / 2, 0, sizeZ / 2);
+    }
+
+    /**
+     * Load a single region as a blueprint.
+     * The region blueprint shares the palette and header of the whole blueprint, its primary offset is relative to the region,
+     * so a structure handler at the anchor position of the whole blueprint places the region at its place in the structure.
+     *
+     * @param region the region index.
+     * @return the region blueprint.
+     * @throws IOException if the region file could not be read.
+     */
+    public Blueprint loadRegion(final int region) throws IOException
+    {
+        final BlockPos origin = getRegionOrigin(region);
+        final short[][][] blocks = readBlocks(region);
+
+        final List<CompoundNBT> tileEntities = new ArrayList<>();
+        if (tileEntityOffsets[region] != null)
+        {
+            for (final CompoundNBT te : readTags(tileEntityOffsets[region]))
+            {
+                te.putShort("x", (short) (te.getShort("x") - origin.getX()));
+                te.putShort("y", (short) (te.getShort("y") - origin.getY()));
+                te.putShort("z", (short) (te.getShort("z") - origin.getZ()));
+                tileEntities.add(te);
+            }
+        }
+
+        final List<CompoundNBT> entities = new ArrayList<>();
+        if (entityOffsets[region] != null)
+        {
+            for (final CompoundNBT entity : readTags(entityOffsets[region]))
+            {
+                final ListNBT pos = entity.getList("Pos", Constants.NBT.TAG_DOUBLE);
+                final ListNBT relativePos = new ListNBT();
+                relativePos.add(DoubleNBT.valueOf(pos.getDouble(0) - origin.getX()));
+                relativePos.add(DoubleNBT.valueOf(pos.getDouble(1) - origin.getY()));
+                relativePos.add(DoubleNBT.valueOf(pos.getDouble(2) - origin.getZ()));
+                entity.put("Pos", relativePos);
+                entities.add(entity);
+            }
+        }
+
+        final Blueprint blueprint = new Blueprint((short) blocks[0][0].length,
+          (short) blocks.length,
+          (short) blocks[0].length,
+          (short) palette.size(),
+          palette,
+          blocks,
+          tileEntities.toArray(new CompoundNBT[0]),
+          metadata.getRequiredMods()).setMissingMods(missingMods);
+        blueprint.setEntities(entities.toArray(new CompoundNBT[0]));
+        blueprint.setName(metadata.getName());
+        blueprint.setArchitects(metadata.getArchitects());
+        blueprint.setCachePrimaryOffset(primaryOffset.subtract(origin));
+        return blueprint;
+    }
+
+    /**
+     * Read the block data of a region.
+     *
+     * @param region the region index.
+     * @return the palette indices, the Coordinate order is: y, z, x
+     * @throws IOException if the region file could not be read.
+     */
+    private short[][][] readBlocks(final int region) throws IOException
+    {
+        final BlockPos size = getRegionSize(region);
+        final short[][][] blocks = new short[size.getY()][size.getZ()][size.getX()];
+        if (blockOffsets[region] < 0)
+        {
+            return blocks;
+        }
+
+        final byte[] data = new byte[size.getX() * size.getY() * size.getZ() * 2];
+        reader.seek(blockOffsets[region]);
+        reader.readFully(data);
+        final ShortBuffer buffer = ByteBuffer.wrap(data).asShortBuffer();
+        for (int y = 0; y < size.getY(); y++)
+        {
+            for (int z = 0; z < size.getZ(); z++)
+            {
+                buffer.get(blocks[y][z]);
+            }
+        }
+        return blocks;
+    }
+
+    /**
+     * Read tags from the region file.
+     *
+     * @param offsets the offsets of the tags.
+     * @return the tags.
+     * @throws IOException if the region file could not be read.
+     */
+    private List<CompoundNBT> readTags(final LongArrayList offsets) throws IOException
+    {
+        final List<CompoundNBT> tags = new ArrayList<>(offsets.size());
+        for (int i = 0; i < offsets.size(); i++)
+        {
+            reader.seek(offsets.getLong(i));
+            tags.add(CompressedStreamTools.read(reader, NBTSizeTracker.UNLIMITED));
+        }
+        return tags;
+    }
+
+    /**
+     * @return the header of the blueprint.
+     */
+    public BlueprintMetadata getMetadata()
+    {
+        return metadata;
+    }
+
+    /**
+     * @return the primary offset of the whole blueprint.
+     */
+    public BlockPos getPrimaryOffset()
+    {
+        return primaryOffset;
+    }
+
+    /**
+     * @return the amount of regions.
+     */
+    public int getRegionCount()
+    {
+        return regionsX * regionsY * regionsZ;
+    }
+
+    /**
+     * Get the lowest corner of a region in the blueprint.
+     *
+     * @param region the region index.
+     * @return the corner.
+     */
+    public BlockPos getRegionOrigin(final int region)
+    {
+        return new BlockPos(region % regionsX * REGION_SIZE, region / (regionsX * regionsZ) * REGION_SIZE, region / regionsX % regionsZ * REGION_SIZE);
+    }
+
+    /**
+     * Get the size of a region, regions at the far edges of the blueprint can be smaller.
+     *
+     * @param region the region index.
+     * @return the size.
+     */
+    public BlockPos getRegionSize(final int region)
+    {
+        final BlockPos origin = getRegionOrigin(region);
+        return new BlockPos(Math.min(REGION_SIZE, sizeX - origin.getX()), Math.min(REGION_SIZE, sizeY - origin.getY()), Math.min(REGION_SIZE, sizeZ - origin.getZ()));
+    }
+
+    /**
+     * Get the index of the region a position is in.
+     *
+     * @param x the x position in the blueprint.
+     * @param y the y position in the blueprint.
+     * @param z the z position in the blueprint.
+     * @return the region index or -1 if the position is outside of the blueprint.
+     */
+    private int getRegionIndex(final int x, final int y, final int z)
+    {
+        if (x < 0 || y < 0 || z < 0 || x >= sizeX || y >= sizeY || z >= sizeZ)
+        {
+            return -1;
+        }
+        return (y / REGION_SIZE * regionsZ + z / REGION_SIZE) * regionsX + x / REGION_SIZE;
+    }
+
+    /**
+     * Close and delete the region file.
+     */
+    @Override
+    public void close()
+    {
+        try
+        {
+            if (reader != null)
+            {
+                reader.close();
+                reader = null;
+            }
+        }
+        catch (final IOException e)
+        {
+            Log.getLogger().warn("Could not close blueprint region file", e);
+        }
+
+        if (regionFile.exists() && !regionFile.delete())
+        {
+            Log.getLogger().warn("Could not delete blueprint region file " + regionFile);
+        }
+    }
+
+    /**
+     * Reads entries from a packed long array, entries do not span longs.
+     */
+    private static final class BitArrayReader
+    {
+        private final long[] data;
+        private final int    bits;
+        private final int    perLong;
+        private final long   mask;
+
+        private BitArrayReader(final long[] data, final int bits)
+        {
+            this.data = data;
+            this.bits = bits;
+            this.perLong = Long.SIZE / bits;
+            this.mask = (1L << bits) - 1;
+        }
+
+        private long get(final int index)
+        {
+            final int cell = index / perLong;
+            return cell < data.length ? (data[cell] >> ((index - cell * perLong) * bits)) & mask : 0;
+        }
+    }
+
+    /**
+     * Writes the region file.
+     * Block data arrives in y, z, x order, it is buffered for one layer of regions and written once the layer is complete.
+     */
+    private final class RegionWriter implements Closeable
+    {
+        /**
+         * The region file.
+         */
+        private final DataOutputStream out;
+
+        /**
+         * The amount of bytes written so far.
+         */
+        private long written = 0;
+
+        /**
+         * The block data of the current layer of regions.
+         */
+        private final short[][][] layer = new short[REGION_SIZE][sizeZ][sizeX];
+
+        /**
+         * The position of the next block.
+         */
+        private int x = 0, y = 0, z = 0;
+
+        /**
+         * Whether the current layer contains anything but air.
+         */
+        private boolean layerHasBlocks = false;
+
+        private RegionWriter(final DataOutputStream out)
+        {
+            this.out = out;
+        }
+
+        /**
+         * @return true if every position of the blueprint received its block.
+         */
+        private boolean isFull()
+        {
+            return y >= sizeY || sizeX <= 0 || sizeZ <= 0;
+        }
+
+        /**
+         * Add the palette index of the next position.
+         *
+         * @param index the palette index.
+         * @throws IOException if writing failed.
+         */
+        private void accept(final short index) throws IOException
+        {
+            if (isFull())
+            {
+                return;
+            }
+
+            layer[y % REGION_SIZE][z][x] = index;
+            layerHasBlocks |= index != 0;
+            if (++x < sizeX)
+            {
+                return;
+            }
+            x = 0;
+            if (++z < sizeZ)
+            {
+                return;
+            }
+            z = 0;
+            if (++y % REGION_SIZE == 0 || y == sizeY)
+            {
+                flushLayer((y - 1) / REGION_SIZE);
+            }
+        }
+
+        /**
+         * Write the regions of a complete layer.
+         *
+         * @param regionY the region y coordinate of the layer.
+         * @throws IOException if writing failed.
+         */
+        private void flushLayer(final int regionY) throws IOException
+        {
+            if (!layerHasBlocks)
+            {
+                return;
+            }
+
+            final int height = Math.min(REGION_SIZE, sizeY - regionY * REGION_SIZE);
+            for (int regionZ = 0; regionZ < regionsZ; regionZ++)
+            {
+                for (int regionX = 0; regionX < regionsX; regionX++)
+                {
+                    final int fromX = regionX * REGION_SIZE;
+                    final int fromZ = regionZ * REGION_SIZE;
+                    final int toX = Math.min(sizeX, fromX + REGION_SIZE);
+                    final int toZ = Math.min(sizeZ, fromZ + REGION_SIZE);
+                    if (isAir(height, fromX, toX, fromZ, toZ))
+                    {
+                        continue;
+                    }
+
+                    blockOffsets[(regionY * regionsZ + regionZ) * regionsX + regionX] = written;
+                    for (int localY = 0; localY < height; localY++)
+                    {
+                        for (int localZ = fromZ; localZ < toZ; localZ++)
+                        {
+                            for (int localX = fromX; localX < toX; localX++)
+                            {
+                                out.writeShort(layer[localY][localZ][localX]);
+                            }
+                        }
+                    }
+                    written += (long) height * (toZ - fromZ) * (toX - fromX) * 2;
+                }
+            }
+
+            for (final short[][] plane : layer)
+            {
+                for (final short[] row : plane)
+                {
+                    Arrays.fill(row, (short) 0);
+                }
+            }
+            layerHasBlocks = false;
+        }
+
+        /**
+         * Check if a part of the current layer is air only.
+         *
+         * @param height the height of the layer.
+         * @param fromX  the lowest x position.
+         * @param toX    the x position after the highest one.
+         * @param fromZ  the lowest z position.
+         * @param toZ    the z position after the highest one.
+         * @return true if so.
+         */
+        private boolean isAir(final int height, final int fromX, final int toX, final int fromZ, final int toZ)
+        {
+            for (int localY = 0; localY < height; localY++)
+            {
+                for (int localZ = fromZ; localZ < toZ; localZ++)
+                {
+                    for (int localX = fromX; localX < toX; localX++)
+                    {
+                        if (layer[localY][localZ][localX] != 0)
+                        {
+                            return false;
+                        }
+                    }
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Append a tileEntity or entity to the region file and record it for the region it is in.
+         *
+         * @param tag          the tag.
+         * @param isTileEntity true for tileEntities, false for entities.
+         * @throws IOException if writing failed.
+         */
+        private void writeTag(final CompoundNBT tag, final boolean isTileEntity) throws IOException
+        {
+            final int region;
+            if (isTileEntity)
+            {
+                region = getRegionIndex(tag.getShort("x"), tag.getShort("y"), tag.getShort("z"));
+            }
+            else
+            {
+                final ListNBT pos = tag.getList("Pos", Constants.NBT.TAG_DOUBLE);
+                region = getRegionIndex((int) pos.getDouble(0), (int) pos.getDouble(1), (int) pos.getDouble(2));
+            }
+            if (region < 0)
+            {
+                return;
+            }
+
+            final LongArrayList[] offsets = isTileEntity ? tileEntityOffsets : entityOffsets;
+            if (offsets[region] == null)
+            {
+                offsets[region] = new LongArrayList();
+            }
+            offsets[region].add(written);
+
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            CompressedStreamTools.write(tag, new DataOutputStream(bytes));
+            bytes.writeTo(out);
+            written += bytes.size();
+        }
+
+        /**
+         * Flush the last, incomplete layer if the block data ended early and close the file.
+         */
+        @Override
+        public void close() throws IOException
+        {
+            try
+            {
+                if (!isFull() && (x > 0 || z > 0 || y % REGION_SIZE > 0))
+                {
+                    flushLayer(y / REGION_SIZE);
+                }
+            }
+            finally
+            {
+                out.close();
+            }
+        }
+    }
+}
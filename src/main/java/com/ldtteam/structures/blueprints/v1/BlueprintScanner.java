@@ -0,0 +1,309 @@
+package com.ldtteam.structures.blueprints.v1;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.nbt.CompoundNBT;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.ChunkSection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Scans a region of the world chunk section by chunk section.
+ * Block states are read straight from the sections and tileEntities are collected from the block entity map of each chunk,
+ * instead of going through the full world lookup for every position.
+ * Scanning can be done in one go or in bounded steps, see {@link #scanSections(int, long)}.
+ */
+public class BlueprintScanner
+{
+    /**
+     * The world to scan.
+     */
+    private final World world;
+
+    /**
+     * The lowest corner of the scanned region.
+     */
+    private final BlockPos pos;
+
+    /**
+     * The size of the scanned region.
+     */
+    private final short sizeX, sizeY, sizeZ;
+
+    /**
+     * The palette which is built while scanning.
+     */
+    private final BlueprintPaletteBuilder palette = new BlueprintPaletteBuilder();
+
+    /**
+     * The scanned structure data.
+     */
+    private final short[][][] structure;
+
+    /**
+     * The scanned tileEntities.
+     */
+    private final List<CompoundNBT> tileEntities = new ArrayList<>();
+
+    /**
+     * The section coordinate bounds of the region.
+     */
+    private final int minSectionX, minSectionY, minSectionZ;
+    private final int sectionsX, sectionsY, sectionsZ;
+
+    /**
+     * The next section to scan, sections are scanned column by column.
+     */
+    private int nextSection = 0;
+
+    /**
+     * The chunk of the column which is currently scanned.
+     */
+    private Chunk currentChunk = null;
+
+    /**
+     * Create a new scanner for a region.
+     *
+     * @param world the world to scan.
+     * @param pos   the lowest corner of the region.
+     * @param sizeX the size on the X-Axis.
+     * @param sizeY the size on the Y-Axis.
+     * @param sizeZ the size on the Z-Axis.
+     */
+    public BlueprintScanner(final World world, final BlockPos pos, final short sizeX, final short sizeY, final short sizeZ)
+    {
+        this.world = world;
+        this.pos = pos.immutable();
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+        this.structure = new short[sizeY][sizeZ][sizeX];
+
+        this.minSectionX = pos.getX() >> 4;
+        this.minSectionY = pos.getY() >> 4;
+        this.minSectionZ = pos.getZ() >> 4;
+        this.sectionsX = ((pos.getX() + sizeX - 1) >> 4) - minSectionX + 1;
+        this.sectionsY = ((pos.getY() + sizeY - 1) >> 4) - minSectionY + 1;
+        this.sectionsZ = ((pos.getZ() + sizeZ - 1) >> 4) - minSectionZ + 1;
+    }
+
+    /**
+     * Scan up to a certain amount of chunk sections.
+     *
+     * @param maxSections the maximum amount of sections to scan.
+     * @return true if the whole region has been scanned.
+     */
+    public boolean scanSections(final int maxSections)
+    {
+        return scanSections(maxSections, Long.MAX_VALUE);
+    }
+
+    /**
+     * Scan up to a certain amount of chunk sections or until the deadline passed, at least one section is scanned per call.
+     *
+     * @param maxSections the maximum amount of sections to scan.
+     * @param deadline    the {@link System#nanoTime()} after which no further sections are scanned.
+     * @return true if the whole region has been scanned.
+     */
+    public boolean scanSections(final int maxSections, final long deadline)
+    {
+        int scanned = 0;
+        while (!isDone() && scanned < maxSections && (scanned == 0 || System.nanoTime() < deadline))
+        {
+            final int sectionY = nextSection % sectionsY;
+            final int column = nextSection / sectionsY;
+            final int chunkX = minSectionX + column % sectionsX;
+            final int chunkZ = minSectionZ + column / sectionsX;
+
+            if (sectionY == 0 || currentChunk == null)
+            {
+                currentChunk = world.getChunk(chunkX, chunkZ);
+            }
+
+            scanSection(currentChunk, chunkX, minSectionY + sectionY, chunkZ);
+            nextSection++;
+            scanned++;
+        }
+
+        if (isDone())
+        {
+            currentChunk = null;
+        }
+        return isDone();
+    }
+
+    /**
+     * Scan the intersection of a single chunk section with the region.
+     *
+     * @param chunk    the chunk the section is in.
+     * @param sectionX the section x coordinate.
+     * @param sectionY the section y coordinate.
+     * @param sectionZ the section z coordinate.
+     */
+    private void scanSection(final Chunk chunk, final int sectionX, final int sectionY, final int sectionZ)
+    {
+        final int fromX = Math.max(pos.getX(), sectionX << 4);
+        final int fromY = Math.max(pos.getY(), sectionY << 4);
+        final int fromZ = Math.max(pos.getZ(), sectionZ << 4);
+        final int toX = Math.min(pos.getX() + sizeX, (sectionX + 1) << 4);
+        final int toY = Math.min(pos.getY() + sizeY, (sectionY + 1) << 4);
+        final int toZ = Math.min(pos.getZ() + sizeZ, (sectionZ + 1) << 4);
+
+        final ChunkSection[] sections = chunk.getSections();
+        final boolean outOfWorld = sectionY < 0 || sectionY >= sections.length;
+        final ChunkSection section = outOfWorld ? null : sections[sectionY];
+
+        if (outOfWorld || ChunkSection.isEmpty(section))
+        {
+            final short index = palette.getOrAdd(outOfWorld ? Blocks.VOID_AIR.defaultBlockState() : Blocks.AIR.defaultBlockState());
+            if (index > 0)
+            {
+                for (int y = fromY; y < toY; y++)
+                {
+                    for (int z = fromZ; z < toZ; z++)
+                    {
+                        for (int x = fromX; x < toX; x++)
+                        {
+                            structure[y - pos.getY()][z - pos.getZ()][x - pos.getX()] = index;
+                        }
+                    }
+                }
+            }
+            return;
+        }
+
+        // Neighbouring blocks are mostly identical, skip the palette lookup for runs of them.
+        BlockState lastState = null;
+        short lastIndex = 0;
+        for (int y = fromY; y < toY; y++)
+        {
+            for (int z = fromZ; z < toZ; z++)
+            {
+                for (int x = fromX; x < toX; x++)
+                {
+                    final BlockState state = section.getBlockState(x & 15, y & 15, z & 15);
+                    if (state != lastState)
+                    {
+                        lastState = state;
+                        lastIndex = palette.getOrAdd(state);
+                    }
+                    structure[y - pos.getY()][z - pos.getZ()][x - pos.getX()] = lastIndex == BlueprintPaletteBuilder.MISSING ? 0 : lastIndex;
+                }
+            }
+        }
+
+        for (final Map.Entry<BlockPos, TileEntity> entry : chunk.getBlockEntities().entrySet())
+        {
+            final BlockPos tePos = entry.getKey();
+            if (tePos.getX() < fromX || tePos.getX() >= toX || tePos.getY() < fromY || tePos.getY() >= toY || tePos.getZ() < fromZ || tePos.getZ() >= toZ)
+            {
+                continue;
+            }
+
+            if (palette.getOrAdd(section.getBlockState(tePos.getX() & 15, tePos.getY() & 15, tePos.getZ() & 15)) == BlueprintPaletteBuilder.MISSING)
+            {
+                continue;
+            }
+
+            final CompoundNBT teTag = entry.getValue().serializeNBT();
+            teTag.putShort("x", (short) (tePos.getX() - pos.getX()));
+            teTag.putShort("y", (short) (tePos.getY() - pos.getY()));
+            teTag.putShort("z", (short) (tePos.getZ() - pos.getZ()));
+            tileEntities.add(teTag);
+        }
+    }
+
+    /**
+     * @return the scanned world.
+     */
+    public World getWorld()
+    {
+        return world;
+    }
+
+    /**
+     * @return the lowest corner of the region.
+     */
+    public BlockPos getPos()
+    {
+        return pos;
+    }
+
+    /**
+     * @return the size on the X-Axis.
+     */
+    public short getSizeX()
+    {
+        return sizeX;
+    }
+
+    /**
+     * @return the size on the Y-Axis.
+     */
+    public short getSizeY()
+    {
+        return sizeY;
+    }
+
+    /**
+     * @return the size on the Z-Axis.
+     */
+    public short getSizeZ()
+    {
+        return sizeZ;
+    }
+
+    /**
+     * @return true if every section of the region has been scanned.
+     */
+    public boolean isDone()
+    {
+        return nextSection >= getTotalSections();
+    }
+
+    /**
+     * @return the amount of sections the region touches.
+     */
+    public int getTotalSections()
+    {
+        return sectionsX * sectionsY * sectionsZ;
+    }
+
+    /**
+     * @return the amount of sections scanned so far.
+     */
+    public int getScannedSections()
+    {
+        return nextSection;
+    }
+
+    /**
+     * @return the palette built so far.
+     */
+    public BlueprintPaletteBuilder getPalette()
+    {
+        return palette;
+    }
+
+    /**
+     * @return the scanned structure data, the Coordinate order is: y, z, x
+     */
+    public short[][][] getStructure()
+    {
+        return structure;
+    }
+
+    /**
+     * @return the scanned tileEntities.
+     */
+    public List<CompoundNBT> getTileEntities()
+    {
+        return tileEntities;
+    }
+}
@@ -0,0 +1,321 @@
+package com.ldtteam.structures.blueprints.v1;
+
+import net.minecraft.nbt.CompoundNBT;
+import net.minecraft.nbt.NBTSizeTracker;
+import net.minecraft.nbt.NBTTypes;
+import net.minecraftforge.common.util.Constants;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads compressed blueprint files tag by tag.
+ * The version 1 block data is decoded straight from the stream into the final structure arrays instead of being materialized as an nbt int array first,
+ * all other tags are read as nbt and handed to {@link BlueprintUtil#readBlueprint(CompoundNBT, short[][][])}.
+ * For listings only the header tags are read and everything else is skipped, see {@link #readMetadata(InputStream)}.
+ */
+final class BlueprintStreamReader
+{
+    /**
+     * The tags the block data is read with.
+     */
+    private static final String TAG_BLOCKS = "blocks";
+    private static final String TAG_SIZE_X = "size_x";
+    private static final String TAG_SIZE_Y = "size_y";
+    private static final String TAG_SIZE_Z = "size_z";
+
+    /**
+     * The tags the metadata is read from, all others are skipped without being materialized.
+     */
+    static final Set<String> HEADER_TAGS = new HashSet<>(Arrays.asList("version", "name", TAG_SIZE_X, TAG_SIZE_Y, TAG_SIZE_Z, "required_mods", "architects", "optional_data"));
+
+    /**
+     * Private constructor to hide implicit one.
+     */
+    private BlueprintStreamReader()
+    {
+        /*
+         * Intentionally left empty
+         */
+    }
+
+    /**
+     * Read a blueprint from a compressed stream.
+     *
+     * @param compressed the compressed file content.
+     * @return the blueprint or null if the version is not supported.
+     * @throws IOException if the stream is no valid compressed nbt.
+     */
+    static Blueprint read(final InputStream compressed) throws IOException
+    {
+        try (DataInputStream in = open(compressed))
+        {
+            final CompoundNBT tag = new CompoundNBT();
+            short[][][] blocks = null;
+            short[] pendingBlocks = null;
+
+            byte type;
+            while ((type = in.readByte()) != Constants.NBT.TAG_END)
+            {
+                final String key = in.readUTF();
+                if (type == Constants.NBT.TAG_INT_ARRAY && key.equals(TAG_BLOCKS))
+                {
+                    // The tag order depends on the compound's hash order, the sizes may still be unknown here.
+                    if (tag.contains(TAG_SIZE_X) && tag.contains(TAG_SIZE_Y) && tag.contains(TAG_SIZE_Z))
+                    {
+                        blocks = readBlocks(in, tag.getShort(TAG_SIZE_X), tag.getShort(TAG_SIZE_Y), tag.getShort(TAG_SIZE_Z));
+                    }
+                    else
+                    {
+                        pendingBlocks = readFlatBlocks(in);
+                    }
+                }
+                else
+                {
+                    // Version 2 stores packed block data, which is small enough to be decoded from the tag.
+                    tag.put(key, NBTTypes.getType(type).load(in, 1, NBTSizeTracker.UNLIMITED));
+                }
+            }
+
+            // The version 1 block data came before the size tags, it is shaped now that the sizes are known.
+            if (blocks == null && pendingBlocks != null)
+            {
+                blocks = toBlocks(pendingBlocks, tag.getShort(TAG_SIZE_X), tag.getShort(TAG_SIZE_Y), tag.getShort(TAG_SIZE_Z));
+            }
+            return BlueprintUtil.readBlueprint(tag, blocks);
+        }
+    }
+
+    /**
+     * Read only the header tags of a blueprint from a compressed stream.
+     * The block, palette, tileEntity and entity tags are skipped, reading stops once all header tags have been found.
+     *
+     * @param compressed the compressed file content.
+     * @return the metadata or null if the version is not supported.
+     * @throws IOException if the stream is no valid compressed nbt.
+     */
+    static BlueprintMetadata readMetadata(final InputStream compressed) throws IOException
+    {
+        return BlueprintUtil.readMetadata(readTags(compressed, HEADER_TAGS));
+    }
+
+    /**
+     * Read some of the root tags of a blueprint from a compressed stream, all others are skipped.
+     * Reading stops once all of the tags have been found.
+     *
+     * @param compressed the compressed file content.
+     * @param tags       the keys of the tags to read.
+     * @return a compound with the tags which were found.
+     * @throws IOException if the stream is no valid compressed nbt.
+     */
+    static CompoundNBT readTags(final InputStream compressed, final Set<String> tags) throws IOException
+    {
+        try (DataInputStream in = open(compressed))
+        {
+            final CompoundNBT tag = new CompoundNBT();
+            byte type;
+            while (tag.size() < tags.size() && (type = in.readByte()) != Constants.NBT.TAG_END)
+            {
+                final String key = in.readUTF();
+                if (tags.contains(key))
+                {
+                    tag.put(key, NBTTypes.getType(type).load(in, 1, NBTSizeTracker.UNLIMITED));
+                }
+                else
+                {
+                    skipPayload(in, type);
+                }
+            }
+            return tag;
+        }
+    }
+
+    /**
+     * Open a compressed blueprint and read up to the first tag of the root compound.
+     *
+     * @param compressed the compressed file content.
+     * @return the stream, positioned at the type of the first root tag.
+     * @throws IOException if the stream is no valid compressed nbt.
+     */
+    static DataInputStream open(final InputStream compressed) throws IOException
+    {
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(compressed)));
+        if (in.readByte() != Constants.NBT.TAG_COMPOUND)
+        {
+            in.close();
+            throw new IOException("Root tag must be a named compound tag");
+        }
+        in.readUTF();
+        return in;
+    }
+
+    /**
+     * Skip the payload of a tag without creating it.
+     *
+     * @param in   the stream, positioned at the payload.
+     * @param type the type of the tag.
+     * @throws IOException if reading failed.
+     */
+    static void skipPayload(final DataInputStream in, final byte type) throws IOException
+    {
+        switch (type)
+        {
+            case Constants.NBT.TAG_END:
+                break;
+            case Constants.NBT.TAG_BYTE:
+                skipFully(in, 1);
+                break;
+            case Constants.NBT.TAG_SHORT:
+                skipFully(in, 2);
+                break;
+            case Constants.NBT.TAG_INT:
+            case Constants.NBT.TAG_FLOAT:
+                skipFully(in, 4);
+                break;
+            case Constants.NBT.TAG_LONG:
+            case Constants.NBT.TAG_DOUBLE:
+                skipFully(in, 8);
+                break;
+            case Constants.NBT.TAG_BYTE_ARRAY:
+                skipFully(in, in.readInt());
+                break;
+            case Constants.NBT.TAG_STRING:
+                skipFully(in, in.readUnsignedShort());
+                break;
+            case Constants.NBT.TAG_LIST:
+                final byte elementType = in.readByte();
+                final int length = in.readInt();
+                for (int i = 0; i < length; i++)
+                {
+                    skipPayload(in, elementType);
+                }
+                break;
+            case Constants.NBT.TAG_COMPOUND:
+                byte childType;
+                while ((childType = in.readByte()) != Constants.NBT.TAG_END)
+                {
+                    skipFully(in, in.readUnsignedShort());
+                    skipPayload(in, childType);
+                }
+                break;
+            case Constants.NBT.TAG_INT_ARRAY:
+                skipFully(in, in.readInt() * 4L);
+                break;
+            case Constants.NBT.TAG_LONG_ARRAY:
+                skipFully(in, in.readInt() * 8L);
+                break;
+            default:
+                throw new IOException("Unknown tag type " + type);
+        }
+    }
+
+    /**
+     * Skip an exact amount of bytes.
+     *
+     * @param in    the stream.
+     * @param bytes the amount of bytes.
+     * @throws IOException if the stream ended before.
+     */
+    private static void skipFully(final DataInputStream in, final long bytes) throws IOException
+    {
+        long remaining = bytes;
+        while (remaining > 0)
+        {
+            final int skipped = in.skipBytes((int) Math.min(remaining, Integer.MAX_VALUE));
+            if (skipped <= 0)
+            {
+                throw new IOException("Unexpected end of blueprint");
+            }
+            remaining -= skipped;
+        }
+    }
+
+    /**
+     * Decode the block int array from the stream into the structure arrays, each int holds two palette indices.
+     *
+     * @param in    the stream, positioned at the array length.
+     * @param sizeX the size on the X-Axis.
+     * @param sizeY the size on the Y-Axis.
+     * @param sizeZ the size on the Z-Axis.
+     * @return the structure, the Coordinate order is: y, z, x
+     * @throws IOException if reading failed.
+     */
+    private static short[][][] readBlocks(final DataInputStream in, final short sizeX, final short sizeY, final short sizeZ) throws IOException
+    {
+        final short[][][] blocks = new short[sizeY][sizeZ][sizeX];
+        final boolean empty = sizeX <= 0 || sizeY <= 0 || sizeZ <= 0;
+        final int length = in.readInt();
+
+        int x = 0;
+        int y = 0;
+        int z = 0;
+        for (int i = 0; i < length; i++)
+        {
+            final int value = in.readInt();
+            for (int half = 0; half < 2 && !empty && y < sizeY; half++)
+            {
+                blocks[y][z][x] = (short) (half == 0 ? value >> 16 : value);
+                if (++x == sizeX)
+                {
+                    x = 0;
+                    if (++z == sizeZ)
+                    {
+                        z = 0;
+                        y++;
+                    }
+                }
+            }
+        }
+        return blocks;
+    }
+
+    /**
+     * Decode the block int array from the stream into a flat array, for files where the sizes follow the block data.
+     *
+     * @param in the stream, positioned at the array length.
+     * @return the palette indices in y, z, x order.
+     * @throws IOException if reading failed.
+     */
+    private static short[] readFlatBlocks(final DataInputStream in) throws IOException
+    {
+        final int length = in.readInt();
+        final short[] flat = new short[length * 2];
+        for (int i = 0; i < length; i++)
+        {
+            final int value = in.readInt();
+            flat[i * 2] = (short) (value >> 16);
+            flat[i * 2 + 1] = (short) value;
+        }
+        return flat;
+    }
+
+    /**
+     * Split flat block data into the structure rows.
+     *
+     * @param flat  the palette indices in y, z, x order.
+     * @param sizeX the size on the X-Axis.
+     * @param sizeY the size on the Y-Axis.
+     * @param sizeZ the size on the Z-Axis.
+     * @return the structure, the Coordinate order is: y, z, x
+     */
+    private static short[][][] toBlocks(final short[] flat, final short sizeX, final short sizeY, final short sizeZ)
+    {
+        final short[][][] blocks = new short[Math.max(0, sizeY)][Math.max(0, sizeZ)][];
+        int offset = 0;
+        for (int y = 0; y < blocks.length; y++)
+        {
+            for (int z = 0; z < blocks[y].length; z++)
+            {
+                blocks[y][z] = offset < flat.length ? Arrays.copyOfRange(flat, offset, offset + sizeX) : new short[sizeX];
+                offset += sizeX;
+            }
+        }
+        return blocks;
+    }
+}
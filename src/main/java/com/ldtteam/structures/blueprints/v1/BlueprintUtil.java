@@ -10,6 +10,7 @@ import net.minecraft.entity.Entity;
 import net.minecraft.entity.item.HangingEntity;
 import net.minecraft.nbt.*;
 import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.BitArray;
 import net.minecraft.util.SharedConstants;
 import net.minecraft.util.datafix.TypeReferences;
 import net.minecraft.util.datafix.fixes.ChunkPaletteFormat;
@@ -20,9 +21,11 @@ import net.minecraft.world.World;
 import net.minecraft.world.server.ServerWorld;
 import net.minecraftforge.fml.ModList;
 import org.apache.logging.log4j.LogManager;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.*;
 import java.util.function.Function;
@@ -37,10 +40,25 @@ import static com.ldtteam.structurize.api.util.constant.Constants.MOD_ID;
  */
 public class BlueprintUtil
 {
-    private static final int DEFAULT_FIXER_IF_NOT_FOUND = DataVersion.v1_12_2.getDataVersion();
+    static final int DEFAULT_FIXER_IF_NOT_FOUND = DataVersion.v1_12_2.getDataVersion();
 
     private static final String NBT_OPTIONAL_DATA_TAG = "optional_data";
 
+    /**
+     * The blueprint format versions, version 2 bit-packs the block data, see {@link #writeBlocks(CompoundNBT, Blueprint)}.
+     */
+    static final byte VERSION_1       = 1;
+    static final byte VERSION_2       = 2;
+    private static final byte CURRENT_VERSION = VERSION_2;
+
+    /**
+     * The tags of the version 2 block data.
+     */
+    static final String NBT_BLOCK_BITS      = "block_bits";
+    static final String NBT_BLOCK_RUNS      = "block_runs";
+    static final String NBT_BLOCK_RUN_BITS  = "block_run_bits";
+    static final String NBT_BLOCK_RUN_COUNT = "block_run_count";
+
     /**
      * Generates a Blueprint objects from the world
      *
@@ -62,52 +80,34 @@ public class BlueprintUtil
       String name,
       Optional<BlockPos> anchorPos)
     {
-        final List<BlockState> pallete = new ArrayList<>();
-        // Allways add AIR to Pallete
-        pallete.add(Blocks.AIR.defaultBlockState());
-        final short[][][] structure = new short[sizeY][sizeZ][sizeX];
-        final List<CompoundNBT> tileEntities = new ArrayList<>();
-
-        final List<String> requiredMods = new ArrayList<>();
-
-        for (final BlockPos mutablePos : BlockPos.betweenClosed(pos, pos.offset(sizeX - 1, sizeY - 1, sizeZ - 1)))
-        {
-            BlockState state = world.getBlockState(mutablePos);
-            String modName = state.getBlock().getRegistryName().getNamespace();
-
-            short x = (short) (mutablePos.getX() - pos.getX()), y = (short) (mutablePos.getY() - pos.getY()),
-              z = (short) (mutablePos.getZ() - pos.getZ());
-
-            if (!modName.equals("minecraft") && !modName.equals(MOD_ID))
-            {
-                if (!ModList.get().getModContainerById(modName).isPresent())
-                {
-                    structure[y][z][x] = (short) pallete.indexOf(Blocks.AIR.defaultBlockState());
-                    continue;
-                }
-                if (!requiredMods.contains(modName))
-                {
-                    requiredMods.add(modName);
-                }
-            }
-
-            final TileEntity te = world.getBlockEntity(mutablePos);
-            if (te != null)
-            {
-                CompoundNBT teTag = te.serializeNBT();
-                teTag.putShort("x", x);
-                teTag.putShort("y", y);
-                teTag.putShort("z", z);
-                tileEntities.add(teTag);
-            }
-            if (!pallete.contains(state))
-            {
-                pallete.add(state);
-            }
-            structure[y][z][x] = (short) pallete.indexOf(state);
-        }
+        final BlueprintScanner scanner = new BlueprintScanner(world, pos, sizeX, sizeY, sizeZ);
+        scanner.scanSections(Integer.MAX_VALUE);
+        return createBlueprint(scanner, saveEntities, name, anchorPos);
+    }
 
-        final CompoundNBT[] tes = tileEntities.toArray(new CompoundNBT[0]);
+    /**
+     * Generates a Blueprint objects from a finished scan
+     *
+     * @param scanner      the scanner which scanned the blocks.
+     * @param saveEntities if entities should be saved.
+     * @param name         a Name for the Structure
+     * @param anchorPos    the optional anchor position.
+     * @return the generated Blueprint
+     */
+    public static Blueprint createBlueprint(
+      final BlueprintScanner scanner,
+      final boolean saveEntities,
+      final String name,
+      final Optional<BlockPos> anchorPos)
+    {
+        final World world = scanner.getWorld();
+        final BlockPos pos = scanner.getPos();
+        final short sizeX = scanner.getSizeX();
+        final short sizeY = scanner.getSizeY();
+        final short sizeZ = scanner.getSizeZ();
+        final BlueprintPaletteBuilder palleteBuilder = scanner.getPalette();
+        final short[][][] structure = scanner.getStructure();
+        final CompoundNBT[] tes = scanner.getTileEntities().toArray(new CompoundNBT[0]);
 
         final List<CompoundNBT> entitiesTag = new ArrayList<>();
 
@@ -141,7 +141,14 @@ public class BlueprintUtil
             entitiesTag.add(entityTag);
         }
 
-        final Blueprint schem = new Blueprint(sizeX, sizeY, sizeZ, (short) pallete.size(), pallete, structure, tes, requiredMods);
+        final Blueprint schem = new Blueprint(sizeX,
+          sizeY,
+          sizeZ,
+          palleteBuilder.getPaletteSize(),
+          palleteBuilder.getPalette(),
+          structure,
+          tes,
+          palleteBuilder.getRequiredMods());
         schem.setEntities(entitiesTag.toArray(new CompoundNBT[0]));
 
         if (anchorPos.isPresent())
@@ -155,7 +162,8 @@ public class BlueprintUtil
         final TileEntity tile = world.getBlockEntity(pos.offset(schem.getPrimaryBlockOffset()));
         if (tile instanceof IBlueprintDataProvider)
         {
-            final CompoundNBT blueprintData = (CompoundNBT) schem.getBlockInfoAsMap().get(schem.getPrimaryBlockOffset()).getTileEntityData().get(TAG_BLUEPRINTDATA);
+            final BlockPos primaryOffset = schem.getPrimaryBlockOffset();
+            final CompoundNBT blueprintData = (CompoundNBT) schem.getRawTileEntityData(primaryOffset.getX(), primaryOffset.getY(), primaryOffset.getZ()).get(TAG_BLUEPRINTDATA);
 
             if (name != null)
             {
@@ -194,7 +202,7 @@ public class BlueprintUtil
     {
         final CompoundNBT tag = new CompoundNBT();
         // Set Blueprint Version
-        tag.putByte("version", (byte) 1);
+        tag.putByte("version", CURRENT_VERSION);
         // Set Blueprint Size
         tag.putShort("size_x", schem.getSizeX());
         tag.putShort("size_y", schem.getSizeY());
@@ -210,8 +218,7 @@ public class BlueprintUtil
         tag.put("palette", paletteTag);
 
         // Adding blocks
-        final int[] blockInt = convertBlocksToSaveData(schem.getStructure(), schem.getSizeX(), schem.getSizeY(), schem.getSizeZ());
-        tag.putIntArray("blocks", blockInt);
+        writeBlocks(tag, schem);
 
         // Adding Tile Entities
         final ListNBT finishedTes = new ListNBT();
@@ -269,7 +276,7 @@ public class BlueprintUtil
         return tag;
     }
 
-    private static List<BlockState> fixPalette(final int oldDataVersion, final ListNBT paletteTag)
+    static List<BlockState> fixPalette(final int oldDataVersion, final ListNBT paletteTag)
     {
         final short paletteSize = (short) paletteTag.size();
         final List<BlockState> palette = new ArrayList<>();
@@ -345,7 +352,7 @@ public class BlueprintUtil
         }
     }
 
-    private static CompoundNBT[] fixTileEntities(final int oldDataVersion, final ListNBT tileEntitiesTag)
+    static CompoundNBT[] fixTileEntities(final int oldDataVersion, final ListNBT tileEntitiesTag)
     {
         final CompoundNBT[] tileEntities = new CompoundNBT[tileEntitiesTag.size()];
 
@@ -385,7 +392,7 @@ public class BlueprintUtil
         return tileEntities;
     }
 
-    private static CompoundNBT[] fixEntities(final int oldDataVersion, final ListNBT entitiesTag)
+    static CompoundNBT[] fixEntities(final int oldDataVersion, final ListNBT entitiesTag)
     {
         final CompoundNBT[] entities = new CompoundNBT[entitiesTag.size()];
 
@@ -523,9 +530,97 @@ public class BlueprintUtil
      */
     public static Blueprint readBlueprintFromNBT(final CompoundNBT nbtTag)
     {
-        final CompoundNBT tag = nbtTag;
+        return readBlueprint(nbtTag, null);
+    }
+
+    /**
+     * Deserializes a Blueprint from a compressed blueprint file, without materializing the block data as nbt.
+     *
+     * @param compressed the compressed file content.
+     * @return A desserialized Blueprint
+     * @throws IOException if the stream is no valid compressed nbt.
+     */
+    public static Blueprint readBlueprintFromStream(final InputStream compressed) throws IOException
+    {
+        return BlueprintStreamReader.read(compressed);
+    }
+
+    /**
+     * Reads only the header of a compressed blueprint file, the block data is skipped.
+     *
+     * @param compressed the compressed file content.
+     * @return the metadata or null if the version is not supported.
+     * @throws IOException if the stream is no valid compressed nbt.
+     */
+    @Nullable
+    public static BlueprintMetadata readBlueprintMetadata(final InputStream compressed) throws IOException
+    {
+        return BlueprintStreamReader.readMetadata(compressed);
+    }
+
+    /**
+     * Reads the metadata from the header tags of a blueprint.
+     *
+     * @param tag the CompoundNBT containing at least the header tags.
+     * @return the metadata or null if the version is not supported.
+     */
+    @Nullable
+    static BlueprintMetadata readMetadata(final CompoundNBT tag)
+    {
+        final byte version = tag.getByte("version");
+        if (version != VERSION_1 && version != VERSION_2)
+        {
+            return null;
+        }
+
+        final List<String> requiredMods = new ArrayList<>();
+        if (tag.contains("required_mods"))
+        {
+            final ListNBT modsList = (ListNBT) tag.get("required_mods");
+            for (int i = 0; i < modsList.size(); i++)
+            {
+                requiredMods.add(modsList.getString(i));
+            }
+        }
+
+        String[] architects = null;
+        if (tag.contains("architects"))
+        {
+            final ListNBT architectsTag = (ListNBT) tag.get("architects");
+            architects = new String[architectsTag.size()];
+            for (int i = 0; i < architectsTag.size(); i++)
+            {
+                architects[i] = architectsTag.getString(i);
+            }
+        }
+
+        BlockPos primaryOffset = null;
+        final CompoundNBT optionalTag = tag.getCompound(NBT_OPTIONAL_DATA_TAG);
+        if (optionalTag.contains(MOD_ID))
+        {
+            primaryOffset = BlockPosUtil.readFromNBT(optionalTag.getCompound(MOD_ID), "primary_offset");
+        }
+
+        return new BlueprintMetadata(tag.contains("name") ? tag.getString("name") : null,
+          tag.getShort("size_x"),
+          tag.getShort("size_y"),
+          tag.getShort("size_z"),
+          requiredMods,
+          architects,
+          primaryOffset);
+    }
+
+    /**
+     * Deserializes a Blueprint from the given CompoundNBT, optionally with the block data decoded already.
+     *
+     * @param tag           The CompoundNBT containing the Blueprint Data
+     * @param decodedBlocks the decoded block data or null to decode it from the tag.
+     * @return A desserialized Blueprint
+     */
+    static Blueprint readBlueprint(final CompoundNBT tag, @Nullable final short[][][] decodedBlocks)
+    {
         byte version = tag.getByte("version");
-        if (version == 1)
+        if (version == VERSION_1 || version == VERSION_2)
         {
             short sizeX = tag.getShort("size_x"), sizeY = tag.getShort("size_y"), sizeZ = tag.getShort("size_z");
 
@@ -551,7 +646,19 @@ public class BlueprintUtil
             List<BlockState> palette = fixPalette(oldDataVersion, paletteTag);
 
             // Reading Blocks
-            short[][][] blocks = convertSaveDataToBlocks(tag.getIntArray("blocks"), sizeX, sizeY, sizeZ);
+            short[][][] blocks;
+            if (decodedBlocks != null)
+            {
+                blocks = decodedBlocks;
+            }
+            else if (version == VERSION_1)
+            {
+                blocks = convertSaveDataToBlocks(tag.getIntArray("blocks"), sizeX, sizeY, sizeZ);
+            }
+            else
+            {
+                blocks = readBlocks(tag, sizeX, sizeY, sizeZ);
+            }
 
             // Reading Tile Entities
             CompoundNBT[] tileEntities = fixTileEntities(oldDataVersion, (ListNBT) tag.get("tile_entities"));
@@ -619,70 +726,192 @@ public class BlueprintUtil
     }
 
     /**
-     * Converts a 3 Dimensional short Array to a one Dimensional int Array
+     * Writes the block data in the version 2 format.
+     * Each palette index takes only as many bits as the palette size requires, packed like the block states of vanilla chunk sections.
+     * If the structure is made of long runs of the same block, mostly air, the runs are stored instead: the packed index of each run
+     * in "blocks" and the packed run lengths in "block_runs".
      *
-     * @param multDimArray 3 Dimensional short Array
-     * @param sizeX        Sturcture size on the X-Axis
-     * @param sizeY        Sturcture size on the Y-Axis
-     * @param sizeZ        Sturcture size on the Z-Axis
-     * @return An 1 Dimensional int array
+     * @param tag   the tag to write to.
+     * @param schem the blueprint.
      */
-    private static int[] convertBlocksToSaveData(short[][][] multDimArray, short sizeX, short sizeY, short sizeZ)
+    private static void writeBlocks(final CompoundNBT tag, final Blueprint schem)
     {
-        // Converting 3 Dimensional Array to One DImensional
-        short[] oneDimArray = new short[sizeX * sizeY * sizeZ];
-
-        int j = 0;
+        final short[][][] structure = schem.getStructure();
+        final short sizeX = schem.getSizeX(), sizeY = schem.getSizeY(), sizeZ = schem.getSizeZ();
+        final int volume = sizeX * sizeY * sizeZ;
+        final int bits = bitsFor(schem.getPalleteSize() - 1);
+
+        // Count the runs first to decide which encoding is smaller.
+        int runs = 0;
+        int maxRun = 0;
+        int run = 0;
+        short last = 0;
         for (short y = 0; y < sizeY; y++)
         {
             for (short z = 0; z < sizeZ; z++)
             {
                 for (short x = 0; x < sizeX; x++)
                 {
-                    oneDimArray[j++] = multDimArray[y][z][x];
+                    final short index = structure[y][z][x];
+                    if (run > 0 && index == last)
+                    {
+                        run++;
+                        continue;
+                    }
+                    maxRun = Math.max(maxRun, run);
+                    runs += run > 0 ? 1 : 0;
+                    last = index;
+                    run = 1;
                 }
             }
         }
+        maxRun = Math.max(maxRun, run);
+        runs += run > 0 ? 1 : 0;
 
-        // Converting short Array to int Array
-        int[] ints = new int[(int) Math.ceil(oneDimArray.length / 2f)];
+        final int runBits = bitsFor(maxRun - 1);
+        final boolean runLength = packedLength(runs, bits) + packedLength(runs, runBits) < packedLength(volume, bits);
 
-        int currentInt;
-        for (int i = 1; i < oneDimArray.length; i += 2)
+        final BitArray blocks = new BitArray(bits, runLength ? runs : volume);
+        final BitArray runLengths = runLength ? new BitArray(runBits, runs) : null;
+        int i = 0;
+        run = 0;
+        for (short y = 0; y < sizeY; y++)
         {
-            currentInt = oneDimArray[i - 1];
-            currentInt = currentInt << 16 | oneDimArray[i];
-            ints[(int) Math.ceil(i / 2f) - 1] = currentInt;
+            for (short z = 0; z < sizeZ; z++)
+            {
+                for (short x = 0; x < sizeX; x++)
+                {
+                    final short index = structure[y][z][x];
+                    if (runLengths == null)
+                    {
+                        blocks.set(i++, index);
+                    }
+                    else if (run > 0 && index == last)
+                    {
+                        run++;
+                    }
+                    else
+                    {
+                        if (run > 0)
+                        {
+                            runLengths.set(i++, run - 1);
+                        }
+                        blocks.set(i, index);
+                        last = index;
+                        run = 1;
+                    }
+                }
+            }
         }
-        if (oneDimArray.length % 2 == 1)
+
+        tag.putByte(NBT_BLOCK_BITS, (byte) bits);
+        tag.putLongArray("blocks", blocks.getRaw());
+        if (runLengths != null)
         {
-            currentInt = oneDimArray[oneDimArray.length - 1] << 16;
-            ints[ints.length - 1] = currentInt;
+            if (run > 0)
+            {
+                runLengths.set(i, run - 1);
+            }
+            tag.putByte(NBT_BLOCK_RUN_BITS, (byte) runBits);
+            tag.putInt(NBT_BLOCK_RUN_COUNT, runs);
+            tag.putLongArray(NBT_BLOCK_RUNS, runLengths.getRaw());
         }
-        return ints;
     }
 
     /**
-     * Converts a 1 Dimensional int Array to a 3 Dimensional short Array
+     * Reads block data written by {@link #writeBlocks(CompoundNBT, Blueprint)}.
      *
-     * @param ints  1 Dimensioanl int Array
+     * @param tag   the tag to read from.
      * @param sizeX Sturcture size on the X-Axis
      * @param sizeY Sturcture size on the Y-Axis
      * @param sizeZ Sturcture size on the Z-Axis
      * @return An 3 Dimensional short array
      */
-    private static short[][][] convertSaveDataToBlocks(int[] ints, short sizeX, short sizeY, short sizeZ)
+    private static short[][][] readBlocks(final CompoundNBT tag, final short sizeX, final short sizeY, final short sizeZ)
     {
-        // Convert int array to short array
-        short[] oneDimArray = new short[ints.length * 2];
+        final short[][][] multDimArray = new short[sizeY][sizeZ][sizeX];
+        final int volume = sizeX * sizeY * sizeZ;
+        final int bits = tag.getByte(NBT_BLOCK_BITS);
+        if (volume <= 0)
+        {
+            return multDimArray;
+        }
 
-        for (int i = 0; i < ints.length; i++)
+        if (!tag.contains(NBT_BLOCK_RUNS))
         {
-            oneDimArray[i * 2] = (short) (ints[i] >> 16);
-            oneDimArray[(i * 2) + 1] = (short) (ints[i]);
+            final BitArray blocks = new BitArray(bits, volume, tag.getLongArray("blocks"));
+            int i = 0;
+            for (short y = 0; y < sizeY; y++)
+            {
+                for (short z = 0; z < sizeZ; z++)
+                {
+                    for (short x = 0; x < sizeX; x++)
+                    {
+                        multDimArray[y][z][x] = (short) blocks.get(i++);
+                    }
+                }
+            }
+            return multDimArray;
+        }
+
+        final int runs = tag.getInt(NBT_BLOCK_RUN_COUNT);
+        final BitArray blocks = new BitArray(bits, runs, tag.getLongArray("blocks"));
+        final BitArray runLengths = new BitArray(tag.getByte(NBT_BLOCK_RUN_BITS), runs, tag.getLongArray(NBT_BLOCK_RUNS));
+        int position = 0;
+        for (int run = 0; run < runs && position < volume; run++)
+        {
+            final short index = (short) blocks.get(run);
+            final int end = Math.min(volume, position + runLengths.get(run) + 1);
+            if (index == 0)
+            {
+                // The arrays start out as air.
+                position = end;
+                continue;
+            }
+            for (; position < end; position++)
+            {
+                multDimArray[position / (sizeX * sizeZ)][(position / sizeX) % sizeZ][position % sizeX] = index;
+            }
         }
+        return multDimArray;
+    }
+
+    /**
+     * Get the amount of bits required to store values up to a maximum.
+     *
+     * @param maxValue the maximum value.
+     * @return the amount of bits, at least 1.
+     */
+    private static int bitsFor(final int maxValue)
+    {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(maxValue));
+    }
+
+    /**
+     * Get the amount of longs a packed array uses, entries do not span longs.
+     *
+     * @param entries the amount of entries.
+     * @param bits    the bits per entry.
+     * @return the amount of longs.
+     */
+    private static int packedLength(final int entries, final int bits)
+    {
+        final int perLong = Long.SIZE / bits;
+        return (entries + perLong - 1) / perLong;
+    }
 
-        // Convert 1 Dimensional Array to 3 Dimensional Array
+    /**
+     * Converts a 1 Dimensional int Array to a 3 Dimensional short Array
+     *
+     * @param ints  1 Dimensioanl int Array
+     * @param sizeX Sturcture size on the X-Axis
+     * @param sizeY Sturcture size on the Y-Axis
+     * @param sizeZ Sturcture size on the Z-Axis
+     * @return An 3 Dimensional short array
+     */
+    private static short[][][] convertSaveDataToBlocks(int[] ints, short sizeX, short sizeY, short sizeZ)
+    {
+        // Each int holds two shorts, decode them straight into the 3 Dimensional Array
         short[][][] multDimArray = new short[sizeY][sizeZ][sizeX];
 
         int i = 0;
@@ -692,7 +921,11 @@ public class BlueprintUtil
             {
                 for (short x = 0; x < sizeX; x++)
                 {
-                    multDimArray[y][z][x] = oneDimArray[i++];
+                    if ((i >> 1) < ints.length)
+                    {
+                        multDimArray[y][z][x] = (short) ((i & 1) == 0 ? ints[i >> 1] >> 16 : ints[i >> 1]);
+                    }
+                    i++;
                 }
             }
         }
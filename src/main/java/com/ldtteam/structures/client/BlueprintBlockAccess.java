@@ -68,12 +68,45 @@ public class BlueprintBlockAccess extends World
      */
     private Blueprint blueprint;
 
+    /**
+     * Whether placeholders are hidden, the fluid placeholders are rendered as and the biome of all positions.
+     * Captured for snapshots used off the render thread, null reads the live settings and client world.
+     */
+    @Nullable
+    private final Boolean    hidePlaceholders;
+    @Nullable
+    private final BlockState fluidSubstitution;
+    @Nullable
+    private final Biome      biome;
+
     /**
      * Constructor to create a new world/blockAccess
      * 
      * @param blueprint the blueprint.
      */
     public BlueprintBlockAccess(final Blueprint blueprint)
+    {
+        this(blueprint, null, null, null);
+    }
+
+    /**
+     * Constructor to create a snapshot world/blockAccess, which reads neither the settings nor the client world once created.
+     *
+     * @param blueprint         the blueprint, should be a view which is not modified.
+     * @param hidePlaceholders  whether placeholders are hidden.
+     * @param fluidSubstitution the state fluid placeholders are rendered as.
+     * @param biome             the biome of all positions.
+     */
+    public BlueprintBlockAccess(final Blueprint blueprint, final boolean hidePlaceholders, final BlockState fluidSubstitution, final Biome biome)
+    {
+        this(blueprint, (Boolean) hidePlaceholders, fluidSubstitution, biome);
+    }
+
+    private BlueprintBlockAccess(
+      final Blueprint blueprint,
+      @Nullable final Boolean hidePlaceholders,
+      @Nullable final BlockState fluidSubstitution,
+      @Nullable final Biome biome)
     {
         super((ISpawnWorldInfo) getWorld().getLevelData(),
             getWorld().dimension(),
@@ -83,6 +116,9 @@ public class BlueprintBlockAccess extends World
             true,
             0L);
         this.blueprint = blueprint;
+        this.hidePlaceholders = hidePlaceholders;
+        this.fluidSubstitution = fluidSubstitution;
+        this.biome = biome;
     }
 
     public static World getWorld() {
@@ -110,18 +146,23 @@ public class BlueprintBlockAccess extends World
     @Override
     public BlockState getBlockState(@NotNull final BlockPos pos)
     {
-        final BlockState state = BlueprintUtils.getBlockInfoFromPos(blueprint, pos).getState().getBlockState();
+        final BlockState state = BlueprintUtils.getBlockStateFromPos(blueprint, pos);
         if (state.getBlock() == ModBlocks.blockSolidSubstitution.get())
         {
             return Blocks.DIRT.defaultBlockState();
         }
         if (state.getBlock() == ModBlocks.blockFluidSubstitution.get())
         {
+            if (fluidSubstitution != null)
+            {
+                return fluidSubstitution;
+            }
             return Minecraft.getInstance().level != null
                     ? BlockUtils.getFluidForDimension( Minecraft.getInstance().level)
                     : Blocks.WATER.defaultBlockState();
         }
-        return (state.getBlock() == ModBlocks.blockSubstitution.get() && Settings.instance.renderLightPlaceholders()) ||
+        final boolean hide = hidePlaceholders != null ? hidePlaceholders : Settings.instance.renderLightPlaceholders();
+        return (state.getBlock() == ModBlocks.blockSubstitution.get() && hide) ||
                state.getBlock() == ModBlocks.blockTagSubstitution.get()
                 ? Blocks.AIR.defaultBlockState() : state;
     }
@@ -165,7 +206,7 @@ public class BlueprintBlockAccess extends World
     @Override
     public Biome getBiome(BlockPos p_226691_1_)
     {
-        return getWorld().getBiome(p_226691_1_);
+        return biome != null ? biome : getWorld().getBiome(p_226691_1_);
     }
 
     @Override
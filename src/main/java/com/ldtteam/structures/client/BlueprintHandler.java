@@ -23,6 +23,11 @@ public final class BlueprintHandler
     private static final int CACHE_SIZE = 30;
     private static final long CACHE_EVICT_TIME = 45_000L;
 
+    /**
+     * Time after which a renderer which is not drawn stops meshing, until it is drawn again.
+     */
+    private static final long STOP_MESHING_TIME = 1_000L;
+
     private final Int2ObjectArrayMap<BlueprintRenderer> rendererCache = new Int2ObjectArrayMap<>(CACHE_SIZE);
     private final Int2LongArrayMap evictTimeCache = new Int2LongArrayMap(CACHE_SIZE);
 
@@ -79,7 +84,7 @@ public final class BlueprintHandler
     }
 
     /**
-     * Cleans entries that are older than CACHE_EVICT_TIME.
+     * Cleans entries that are older than CACHE_EVICT_TIME and stops the meshing of entries not drawn for STOP_MESHING_TIME.
      */
     public void cleanCache()
     {
@@ -94,6 +99,10 @@ public final class BlueprintHandler
                 rendererCache.remove(entry.getIntKey()).close();
                 iter.remove();
             }
+            else if (entry.getLongValue() + STOP_MESHING_TIME < now)
+            {
+                rendererCache.get(entry.getIntKey()).stopMeshing();
+            }
         }
     }
 
@@ -6,16 +6,18 @@ import com.ldtteam.structures.lib.BlueprintUtils;
 import com.ldtteam.structurize.blocks.ModBlocks;
 import com.ldtteam.structurize.event.ClientEventSubscriber;
 import com.ldtteam.structurize.optifine.OptifineCompat;
-import com.ldtteam.structurize.util.BlockInfo;
 import com.ldtteam.structurize.util.BlockUtils;
 import com.ldtteam.structurize.util.FluidRenderer;
 import com.mojang.blaze3d.matrix.MatrixStack;
 import com.mojang.blaze3d.systems.RenderSystem;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
 import net.minecraft.block.BlockRenderType;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.Blocks;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.renderer.*;
+import net.minecraft.client.renderer.culling.ClippingHelper;
 import net.minecraft.client.renderer.texture.AtlasTexture;
 import net.minecraft.client.renderer.tileentity.TileEntityRendererDispatcher;
 import net.minecraft.client.renderer.vertex.DefaultVertexFormats;
@@ -28,36 +30,139 @@ import net.minecraft.fluid.FluidState;
 import net.minecraft.item.CompassItem;
 import net.minecraft.item.ItemStack;
 import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.Direction;
+import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.MathHelper;
 import net.minecraft.util.math.vector.Matrix4f;
 import net.minecraft.util.math.vector.Vector3d;
 import net.minecraft.world.World;
+import net.minecraft.world.biome.Biome;
 import net.minecraftforge.client.model.data.EmptyModelData;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Random;
-import java.util.function.Supplier;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The renderer for blueprint.
  * Holds all information required to render a blueprint.
+ * Blocks are meshed in sections of 16x16x16 blocks, only sections inside the camera frustum and render distance are drawn.
+ * Sections are meshed on worker threads and uploaded on the render thread as they complete, so large blueprints appear progressively.
+ * The workers mesh a snapshot of the blueprint and the render settings, taken on the render thread.
  */
 public class BlueprintRenderer implements AutoCloseable
 {
     private static final Logger LOGGER = LogManager.getLogger();
-    private static final Supplier<Map<RenderType, VertexBuffer>> blockVertexBuffersFactory = () -> RenderType.chunkBufferLayers()
-        .stream()
-        .collect(Collectors.toMap((type) -> type, (type) -> new VertexBuffer(DefaultVertexFormats.BLOCK)));
+
+    /**
+     * The edge length of a render section.
+     */
+    private static final int SECTION_SIZE = 16;
+
+    /**
+     * The amount of threads sections are meshed on, one core is left to the render thread.
+     */
+    private static final int MESH_THREADS = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() - 1, 4));
+
+    /**
+     * The threads sections are meshed on, shared by all renderers.
+     */
+    private static final ExecutorService MESH_EXECUTOR = Executors.newFixedThreadPool(MESH_THREADS, runnable -> {
+        final Thread thread = new Thread(runnable, "Structurize blueprint meshing");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Max amount of sections per renderer which are being meshed or wait for their upload.
+     * Meshed sections hold their buffer builders until the renderer is drawn again, so renderers which are not drawn hold few.
+     */
+    private static final int MAX_SECTIONS_IN_FLIGHT = MESH_THREADS * 2;
+
+    /**
+     * Max amount of unused buffer builder sets kept for reuse, further released sets are left to the garbage collector.
+     */
+    private static final int MAX_FREE_BUILDER_SETS = MESH_THREADS * 2;
+
+    /**
+     * The buffer builder sets which are not in use.
+     */
+    private static final BlockingQueue<Map<RenderType, BufferBuilder>> FREE_BUILDERS = new LinkedBlockingQueue<>();
+
+    /**
+     * Max nanoseconds per frame spent on uploading meshed sections.
+     */
+    private static final long UPLOAD_BUDGET_NANOS = 4_000_000L;
+
+    /**
+     * The section hash of sections which have not been meshed.
+     */
+    private static final long NO_HASH = 0L;
 
     private final BlueprintBlockAccess blockAccess;
     private List<Entity> entities;
     private List<TileEntity> tileEntities;
-    private Map<RenderType, VertexBuffer> vertexBuffers;
+    private Map<BlockPos, RenderSection> renderSections;
+
+    /**
+     * The hash of the rendered states each section was meshed from, see {@link #hashSection}.
+     */
+    private final Object2LongMap<BlockPos> sectionHashes = new Object2LongOpenHashMap<>();
+
+    /**
+     * The blueprint and its modification count the entities and tileEntities were instantiated from.
+     */
+    private Blueprint entitySource;
+    private int       entitySourceModification;
+
+    /**
+     * Sections meshed by the workers which are waiting for their upload.
+     */
+    private final Queue<MeshedSection> meshedSections = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The mesh tasks of the current generation.
+     */
+    private final List<Future<?>> meshTasks = new ArrayList<>();
+
+    /**
+     * The sections of the current generation which were not submitted for meshing yet.
+     */
+    private final Queue<BlockPos> pendingSections = new ArrayDeque<>();
+
+    /**
+     * The snapshot the sections of the current generation are meshed from.
+     */
+    @Nullable
+    private MeshSnapshot snapshot = null;
+
+    /**
+     * Whether the meshing was stopped because the renderer is not drawn or there is no client world, it restarts on the next draw.
+     */
+    private boolean meshingStopped = false;
+
+    /**
+     * Incremented whenever the meshes are rebuilt or dropped, results of older mesh tasks are discarded.
+     */
+    private volatile int generation = 0;
 
     /**
      * Static factory utility method to handle the extraction of the values from the blueprint.
@@ -79,6 +184,7 @@ public class BlueprintRenderer implements AutoCloseable
 
     /**
      * Updates blueprint reference if it has same hash.
+     * Only the sections whose rendered states differ between the old and the new blueprint are meshed again.
      *
      * @param blueprint blueprint from active structure
      */
@@ -87,58 +193,247 @@ public class BlueprintRenderer implements AutoCloseable
         if (blockAccess.getBlueprint() != blueprint && blockAccess.getBlueprint().hashCode() == blueprint.hashCode())
         {
             blockAccess.setBlueprint(blueprint);
-            Settings.instance.scheduleRefresh();
+            refresh();
         }
     }
 
     private void init()
     {
         clearVertexBuffers();
-        entities = BlueprintUtils.instantiateEntities(blockAccess.getBlueprint(), blockAccess);
-        tileEntities = BlueprintUtils.instantiateTileEntities(blockAccess.getBlueprint(), blockAccess);
+        renderSections = new HashMap<>();
+        refresh();
+    }
+
+    /**
+     * Bring the meshes up to date after a refresh was scheduled.
+     * Entities and tileEntities are only instantiated again if the blueprint changed,
+     * each section is hashed by the mesh workers and only sections whose rendered states changed are meshed again.
+     * Outdated meshes stay visible until their replacement is uploaded, except after a rotation or mirror, which moves every block.
+     */
+    private void refresh()
+    {
+        final Blueprint blueprint = blockAccess.getBlueprint();
+        if (blueprint != entitySource || blueprint.getModificationCount() != entitySourceModification)
+        {
+            if (blueprint == entitySource)
+            {
+                renderSections.values().forEach(RenderSection::close);
+                renderSections.clear();
+                sectionHashes.clear();
+            }
+
+            entities = BlueprintUtils.instantiateEntities(blueprint, blockAccess);
+            tileEntities = BlueprintUtils.instantiateTileEntities(blueprint, blockAccess);
+            entitySource = blueprint;
+            entitySourceModification = blueprint.getModificationCount();
+        }
+
+        cancelMeshing();
+
+        // The snapshot reads the fluid, the biome and its level data from the client world, meshing waits until there is one.
+        final Minecraft mc = Minecraft.getInstance();
+        if (mc.level == null)
+        {
+            meshingStopped = true;
+            return;
+        }
+        meshingStopped = false;
+
+        // The blueprint is rotated and mirrored in place on the render thread, the workers mesh a view of it which stays unchanged.
+        final Blueprint view = blueprint.createView();
+        final boolean hidePlaceholders = Settings.instance.renderLightPlaceholders();
+        final BlockState fluidSubstitution = BlockUtils.getFluidForDimension(mc.level);
+        final Biome biome = mc.level.getBiome(mc.gameRenderer.getMainCamera().getBlockPosition());
+        snapshot = new MeshSnapshot(view, new BlueprintBlockAccess(view, hidePlaceholders, fluidSubstitution, biome), hidePlaceholders, fluidSubstitution, generation);
+
+        // Sections outside of the current size will not be meshed again.
+        final Iterator<Map.Entry<BlockPos, RenderSection>> iterator = renderSections.entrySet().iterator();
+        while (iterator.hasNext())
+        {
+            final Map.Entry<BlockPos, RenderSection> entry = iterator.next();
+            if (!view.isInBounds(entry.getKey().getX(), entry.getKey().getY(), entry.getKey().getZ()))
+            {
+                entry.getValue().close();
+                iterator.remove();
+                sectionHashes.removeLong(entry.getKey());
+            }
+        }
 
+        for (int y = 0; y < view.getSizeY(); y += SECTION_SIZE)
+        {
+            for (int z = 0; z < view.getSizeZ(); z += SECTION_SIZE)
+            {
+                for (int x = 0; x < view.getSizeX(); x += SECTION_SIZE)
+                {
+                    pendingSections.add(new BlockPos(x, y, z));
+                }
+            }
+        }
+        submitSections();
+    }
+
+    /**
+     * Submit pending sections to the mesh workers, as long as less than {@link #MAX_SECTIONS_IN_FLIGHT} are being meshed or wait for their upload.
+     */
+    private void submitSections()
+    {
+        meshTasks.removeIf(Future::isDone);
+        final MeshSnapshot current = snapshot;
+        while (current != null && !pendingSections.isEmpty() && current.running.get() + meshedSections.size() < MAX_SECTIONS_IN_FLIGHT)
+        {
+            final BlockPos origin = pendingSections.poll();
+            final long expectedHash = sectionHashes.getLong(origin);
+            current.running.incrementAndGet();
+            meshTasks.add(MESH_EXECUTOR.submit(() -> meshSection(current, origin, expectedHash)));
+        }
+    }
+
+    /**
+     * Mesh the blocks of one section on a mesh worker and queue the result for the upload on the render thread.
+     * Nothing is queued if the rendered states of the section did not change since its current mesh was built.
+     *
+     * @param snapshot     the snapshot the section is meshed from.
+     * @param origin       the lowest corner of the section.
+     * @param expectedHash the hash of the current mesh of the section.
+     */
+    private void meshSection(final MeshSnapshot snapshot, final BlockPos origin, final long expectedHash)
+    {
+        try
+        {
+            if (snapshot.generation != generation)
+            {
+                return;
+            }
+
+            final BlockPos end = getSectionEnd(snapshot.blueprint, origin);
+            final long hash = hashSection(snapshot, origin, end);
+            if (hash == expectedHash)
+            {
+                return;
+            }
+
+            queue(buildSection(snapshot, origin, end, takeBuilders(), hash));
+        }
+        finally
+        {
+            snapshot.running.decrementAndGet();
+        }
+    }
+
+    /**
+     * Queue a mesh task result for the render thread, unless its generation is outdated.
+     *
+     * @param meshed the result.
+     */
+    private void queue(final MeshedSection meshed)
+    {
+        if (meshed.generation != generation)
+        {
+            meshed.discard();
+            return;
+        }
+
+        meshedSections.add(meshed);
+        // The renderer may have been refreshed or closed while the section was queued, nobody would pick it up then.
+        if (meshed.generation != generation && meshedSections.remove(meshed))
+        {
+            meshed.discard();
+        }
+    }
+
+    /**
+     * Get the highest corner of a section.
+     *
+     * @param blueprint the blueprint the section is part of.
+     * @param origin    the lowest corner of the section.
+     * @return the highest corner.
+     */
+    private static BlockPos getSectionEnd(final Blueprint blueprint, final BlockPos origin)
+    {
+        return new BlockPos(Math.min(blueprint.getSizeX(), origin.getX() + SECTION_SIZE) - 1,
+            Math.min(blueprint.getSizeY(), origin.getY() + SECTION_SIZE) - 1,
+            Math.min(blueprint.getSizeZ(), origin.getZ() + SECTION_SIZE) - 1);
+    }
+
+    /**
+     * Hash the rendered states of a section and the blocks around it, which affect its face culling, lighting and fluid shapes.
+     *
+     * @param snapshot the snapshot the section is meshed from.
+     * @param origin   the lowest corner of the section.
+     * @param end      the highest corner of the section.
+     * @return the hash.
+     */
+    private static long hashSection(final MeshSnapshot snapshot, final BlockPos origin, final BlockPos end)
+    {
+        long hash = end.asLong();
+        for (final BlockPos pos : BlockPos.betweenClosed(origin.offset(-1, -1, -1), end.offset(1, 1, 1)))
+        {
+            final BlockState state = snapshot.blueprint.getBlockState(pos);
+            hash = hash * 0x9E3779B97F4A7C15L + (state == null ? 0 : System.identityHashCode(snapshot.getRenderState(state)) + 1L);
+        }
+        return hash == NO_HASH ? hash + 1 : hash;
+    }
+
+    /**
+     * Mesh the blocks of one section.
+     * The vertices use blueprint coordinates, so all sections are drawn with the same matrix.
+     *
+     * @param snapshot the snapshot the section is meshed from.
+     * @param origin   the lowest corner of the section.
+     * @param end      the highest corner of the section.
+     * @param builders the buffer builder for each layer.
+     * @param hash     the hash of the rendered states of the section.
+     * @return the meshed section, with all buffers ended.
+     */
+    private static MeshedSection buildSection(
+      final MeshSnapshot snapshot,
+      final BlockPos origin,
+      final BlockPos end,
+      final Map<RenderType, BufferBuilder> builders,
+      final long hash)
+    {
+        final Blueprint blueprint = snapshot.blueprint;
+        final BlueprintBlockAccess blockAccess = snapshot.blockAccess;
         final BlockRendererDispatcher blockRendererDispatcher = Minecraft.getInstance().getBlockRenderer();
         final Random random = new Random();
         final MatrixStack matrixStack = new MatrixStack();
-        final List<BlockInfo> blocks = blockAccess.getBlueprint().getBlockInfoAsList();
-        final Map<RenderType, VertexBuffer> newVertexBuffers = blockVertexBuffersFactory.get();
+        final Set<RenderType> usedLayers = new HashSet<>();
 
         for (final RenderType renderType : RenderType.chunkBufferLayers())
         {
-            final BufferBuilder buffer = new BufferBuilder(renderType.bufferSize());
-            buffer.begin(renderType.mode(), renderType.format());
-            for (final BlockInfo blockInfo : blocks)
+            builders.get(renderType).begin(renderType.mode(), renderType.format());
+        }
+
+        try
+        {
+            for (final BlockPos blockPos : BlockPos.betweenClosed(origin, end))
             {
                 try
                 {
-                    BlockState state = blockInfo.getState();
-                    if ((state.getBlock() == ModBlocks.blockSubstitution.get() && Settings.instance.renderLightPlaceholders()) ||
-                        state.getBlock() == ModBlocks.blockTagSubstitution.get())
-                    {
-                        state = Blocks.AIR.defaultBlockState();
-                    }
-                    if (state.getBlock() == ModBlocks.blockFluidSubstitution.get())
+                    final BlockState state = snapshot.getRenderState(blueprint.getBlockState(blockPos));
+                    final FluidState fluidState = state.getFluidState();
+                    if ((state.getRenderShape() == BlockRenderType.INVISIBLE && fluidState.isEmpty()) || snapshot.isEnclosed(blockPos))
                     {
-                        state = Minecraft.getInstance().level != null
-                                ? BlockUtils.getFluidForDimension( Minecraft.getInstance().level)
-                                : Blocks.WATER.defaultBlockState();
+                        continue;
                     }
 
-                    final BlockPos blockPos = blockInfo.getPos();
-                    final FluidState fluidState = state.getFluidState();
-
                     matrixStack.pushPose();
                     matrixStack.translate(blockPos.getX(), blockPos.getY(), blockPos.getZ());
 
-                    if (state.getRenderShape() != BlockRenderType.INVISIBLE && RenderTypeLookup.canRenderInLayer(state, renderType))
-                    {
-                        blockRendererDispatcher
-                            .renderModel(state, blockPos, blockAccess, matrixStack, buffer, true, random, EmptyModelData.INSTANCE);
-                    }
-
-                    if (!fluidState.isEmpty() && RenderTypeLookup.canRenderInLayer(fluidState, renderType))
+                    for (final RenderType renderType : RenderType.chunkBufferLayers())
                     {
-                        FluidRenderer.render(blockAccess, blockPos, buffer, fluidState);
+                        final BufferBuilder buffer = builders.get(renderType);
+                        if (state.getRenderShape() != BlockRenderType.INVISIBLE && RenderTypeLookup.canRenderInLayer(state, renderType)
+                              && blockRendererDispatcher.renderModel(state, blockPos, blockAccess, matrixStack, buffer, true, random, EmptyModelData.INSTANCE))
+                        {
+                            usedLayers.add(renderType);
+                        }
+
+                        if (!fluidState.isEmpty() && RenderTypeLookup.canRenderInLayer(fluidState, renderType)
+                              && FluidRenderer.render(blockAccess, blockPos, buffer, fluidState))
+                        {
+                            usedLayers.add(renderType);
+                        }
                     }
 
                     matrixStack.popPose();
@@ -148,11 +443,117 @@ public class BlueprintRenderer implements AutoCloseable
                     LOGGER.error("Error while trying to render structure part: " + e.getMessage(), e.getCause());
                 }
             }
+        }
+        catch (final RuntimeException e)
+        {
+            LOGGER.error("Error while meshing structure section at " + origin, e);
+            usedLayers.clear();
+        }
+
+        for (final RenderType renderType : RenderType.chunkBufferLayers())
+        {
+            final BufferBuilder buffer = builders.get(renderType);
             buffer.end();
-            OptifineCompat.getInstance().beforeBuilderUpload(buffer);
-            newVertexBuffers.get(renderType).upload(buffer);
+            if (!usedLayers.contains(renderType))
+            {
+                // Drop the empty draw state so the builder can be reused.
+                buffer.popNextBuffer();
+            }
+        }
+        return new MeshedSection(origin, new AxisAlignedBB(origin, end.offset(1, 1, 1)), builders, usedLayers, hash, snapshot.generation);
+    }
+
+    /**
+     * Upload the sections meshed since the last frame, until the upload budget of this frame is used up.
+     * Sections meshed for an older generation are dropped.
+     */
+    private void uploadMeshedSections()
+    {
+        final long deadline = System.nanoTime() + UPLOAD_BUDGET_NANOS;
+        MeshedSection meshed;
+        while (System.nanoTime() < deadline && (meshed = meshedSections.poll()) != null)
+        {
+            if (meshed.generation != generation)
+            {
+                meshed.discard();
+                continue;
+            }
+
+            final RenderSection previous = renderSections.remove(meshed.origin);
+            if (previous != null)
+            {
+                previous.close();
+            }
+
+            final RenderSection section = meshed.upload();
+            if (section != null)
+            {
+                renderSections.put(meshed.origin, section);
+            }
+            sectionHashes.put(meshed.origin, meshed.hash);
         }
-        vertexBuffers = newVertexBuffers;
+    }
+
+    /**
+     * Take a set of buffer builders from the shared pool, a new set is created if none is free.
+     * Never waits, so a renderer which is not drawn cannot hold back the meshing of others.
+     *
+     * @return a buffer builder for each layer.
+     */
+    private static Map<RenderType, BufferBuilder> takeBuilders()
+    {
+        final Map<RenderType, BufferBuilder> free = FREE_BUILDERS.poll();
+        if (free != null)
+        {
+            return free;
+        }
+
+        final Map<RenderType, BufferBuilder> builders = new HashMap<>();
+        for (final RenderType renderType : RenderType.chunkBufferLayers())
+        {
+            builders.put(renderType, new BufferBuilder(renderType.bufferSize()));
+        }
+        return builders;
+    }
+
+    /**
+     * Return a set of buffer builders to the shared pool, unless the pool is full.
+     *
+     * @param builders the builders, with no pending draw state.
+     */
+    private static void releaseBuilders(final Map<RenderType, BufferBuilder> builders)
+    {
+        if (FREE_BUILDERS.size() < MAX_FREE_BUILDER_SETS)
+        {
+            FREE_BUILDERS.offer(builders);
+        }
+    }
+
+    /**
+     * Collect the sections which are inside the camera frustum and the render distance.
+     *
+     * @param matrixStack  the view rotation.
+     * @param partialTicks the partial ticks.
+     * @param camera       the camera position relative to the blueprint.
+     * @return the visible sections.
+     */
+    private List<RenderSection> getVisibleSections(final MatrixStack matrixStack, final float partialTicks, final Vector3d camera)
+    {
+        final Minecraft mc = Minecraft.getInstance();
+        final ClippingHelper frustum = new ClippingHelper(matrixStack.last().pose(),
+            mc.gameRenderer.getProjectionMatrix(mc.gameRenderer.getMainCamera(), partialTicks, true));
+        frustum.prepare(camera.x(), camera.y(), camera.z());
+
+        final double maxDistance = mc.options.renderDistance * 16.0D;
+        final List<RenderSection> visible = new ArrayList<>();
+        for (final RenderSection section : renderSections.values())
+        {
+            if (section.isVisible(frustum, camera, maxDistance * maxDistance))
+            {
+                visible.add(section);
+            }
+        }
+        return visible;
     }
 
     /**
@@ -161,10 +562,12 @@ public class BlueprintRenderer implements AutoCloseable
     public void draw(final BlockPos pos, final MatrixStack matrixStack, final float partialTicks)
     {
         Minecraft.getInstance().getProfiler().push("struct_render_init");
-        if (Settings.instance.shouldRefresh())
+        if (Settings.instance.shouldRefresh() || meshingStopped)
         {
-            init();
+            refresh();
         }
+        uploadMeshedSections();
+        submitSections();
 
         Minecraft.getInstance().getProfiler().popPush("struct_render_blocks");
         final Minecraft mc = Minecraft.getInstance();
@@ -174,8 +577,7 @@ public class BlueprintRenderer implements AutoCloseable
         final int y = pos.getY() - primaryBlockOffset.getY();
         final int z = pos.getZ() - primaryBlockOffset.getZ();
 
-        // missing clipping helper? frustum?
-        // missing chunk system and render distance!
+        final List<RenderSection> visibleSections = getVisibleSections(matrixStack, partialTicks, viewPosition.subtract(x, y, z));
 
         matrixStack.pushPose();
         matrixStack.translate(x - viewPosition.x(), y - viewPosition.y(), z - viewPosition.z());
@@ -184,12 +586,12 @@ public class BlueprintRenderer implements AutoCloseable
         // Render blocks
 
         Minecraft.getInstance().getProfiler().popPush("struct_render_blocks_finish");
-        renderBlockLayer(RenderType.solid(), rawPosMatrix);
+        renderBlockLayer(RenderType.solid(), rawPosMatrix, visibleSections);
         // FORGE: fix flickering leaves when mods mess up the blurMipmap settings
         mc.getModelManager().getAtlas(AtlasTexture.LOCATION_BLOCKS).setBlurMipmap(false, mc.options.mipmapLevels > 0);
-        renderBlockLayer(RenderType.cutoutMipped(), rawPosMatrix);
+        renderBlockLayer(RenderType.cutoutMipped(), rawPosMatrix, visibleSections);
         mc.getModelManager().getAtlas(AtlasTexture.LOCATION_BLOCKS).restoreLastBlurMipmap();
-        renderBlockLayer(RenderType.cutout(), rawPosMatrix);
+        renderBlockLayer(RenderType.cutout(), rawPosMatrix, visibleSections);
 
         OptifineCompat.getInstance().endTerrainBeginEntities();
 
@@ -285,9 +687,9 @@ public class BlueprintRenderer implements AutoCloseable
 
         Minecraft.getInstance().getProfiler().popPush("struct_render_blocks_finish2");
         OptifineCompat.getInstance().endDebugPreWaterBeginWater();
-        renderBlockLayer(RenderType.translucent(), rawPosMatrix);
+        renderBlockLayer(RenderType.translucent(), rawPosMatrix, visibleSections);
         OptifineCompat.getInstance().endWater();
-        renderBlockLayer(RenderType.tripwire(), rawPosMatrix);
+        renderBlockLayer(RenderType.tripwire(), rawPosMatrix, visibleSections);
 
         matrixStack.popPose();
         Minecraft.getInstance().getProfiler().pop();
@@ -298,30 +700,72 @@ public class BlueprintRenderer implements AutoCloseable
      */
     private void clearVertexBuffers()
     {
-        if (vertexBuffers != null)
+        cancelMeshing();
+        if (renderSections != null)
+        {
+            renderSections.values().forEach(RenderSection::close);
+            renderSections = null;
+        }
+        sectionHashes.clear();
+    }
+
+    /**
+     * Cancel all mesh tasks and drop the sections which were meshed but not uploaded yet.
+     * Sections keep their current meshes.
+     */
+    private void cancelMeshing()
+    {
+        generation++;
+        snapshot = null;
+        pendingSections.clear();
+        meshTasks.forEach(task -> task.cancel(false));
+        meshTasks.clear();
+        MeshedSection meshed;
+        while ((meshed = meshedSections.poll()) != null)
         {
-            vertexBuffers.values().forEach(buffer -> buffer.close());
-            vertexBuffers = null;
+            meshed.discard();
         }
     }
 
+    /**
+     * Stop meshing while the renderer is not drawn and release the buffers of sections waiting for their upload.
+     * The meshing continues on the next draw, sections which were uploaded already are not meshed again.
+     */
+    public void stopMeshing()
+    {
+        meshTasks.removeIf(Future::isDone);
+        if (meshingStopped || (pendingSections.isEmpty() && meshTasks.isEmpty() && meshedSections.isEmpty()))
+        {
+            return;
+        }
+        cancelMeshing();
+        meshingStopped = true;
+    }
+
     @Override
     public void close()
     {
         clearVertexBuffers();
     }
 
-    private void renderBlockLayer(final RenderType layerRenderType, final Matrix4f rawPosMatrix)
+    private void renderBlockLayer(final RenderType layerRenderType, final Matrix4f rawPosMatrix, final List<RenderSection> sections)
     {
-        final VertexBuffer buffer = vertexBuffers.get(layerRenderType);
-
         layerRenderType.setupRenderState();
         OptifineCompat.getInstance().preLayerDraw(layerRenderType);
 
-        buffer.bind();
-        DefaultVertexFormats.BLOCK.setupBufferState(0);
-        OptifineCompat.getInstance().setupArrayPointers();
-        buffer.draw(rawPosMatrix, layerRenderType.mode());
+        for (final RenderSection section : sections)
+        {
+            final VertexBuffer buffer = section.vertexBuffers.get(layerRenderType);
+            if (buffer == null)
+            {
+                continue;
+            }
+
+            buffer.bind();
+            DefaultVertexFormats.BLOCK.setupBufferState(0);
+            OptifineCompat.getInstance().setupArrayPointers();
+            buffer.draw(rawPosMatrix, layerRenderType.mode());
+        }
 
         VertexBuffer.unbind();
         RenderSystem.clearCurrentColor();
@@ -330,4 +774,181 @@ public class BlueprintRenderer implements AutoCloseable
         OptifineCompat.getInstance().postLayerDraw(layerRenderType);
         layerRenderType.clearRenderState();
     }
+
+    /**
+     * The blueprint and render settings the sections of one generation are meshed from, taken on the render thread.
+     */
+    private static final class MeshSnapshot
+    {
+        private final Blueprint            blueprint;
+        private final BlueprintBlockAccess blockAccess;
+        private final boolean              hidePlaceholders;
+        private final BlockState           fluidSubstitution;
+        private final int                  generation;
+
+        /**
+         * The amount of submitted mesh tasks which did not finish yet.
+         */
+        private final AtomicInteger running = new AtomicInteger();
+
+        private MeshSnapshot(
+          final Blueprint blueprint,
+          final BlueprintBlockAccess blockAccess,
+          final boolean hidePlaceholders,
+          final BlockState fluidSubstitution,
+          final int generation)
+        {
+            this.blueprint = blueprint;
+            this.blockAccess = blockAccess;
+            this.hidePlaceholders = hidePlaceholders;
+            this.fluidSubstitution = fluidSubstitution;
+            this.generation = generation;
+        }
+
+        /**
+         * Get the state a blueprint block is rendered as.
+         *
+         * @param state the state in the blueprint.
+         * @return the rendered state.
+         */
+        private BlockState getRenderState(final BlockState state)
+        {
+            if ((state.getBlock() == ModBlocks.blockSubstitution.get() && hidePlaceholders) ||
+                state.getBlock() == ModBlocks.blockTagSubstitution.get())
+            {
+                return Blocks.AIR.defaultBlockState();
+            }
+            if (state.getBlock() == ModBlocks.blockFluidSubstitution.get())
+            {
+                return fluidSubstitution;
+            }
+            return state;
+        }
+
+        /**
+         * Check if a block is hidden by opaque blocks on all sides within the blueprint.
+         *
+         * @param pos the position in the blueprint.
+         * @return true if no face of it can be seen.
+         */
+        private boolean isEnclosed(final BlockPos pos)
+        {
+            for (final Direction direction : Direction.values())
+            {
+                final BlockPos neighbour = pos.relative(direction);
+                final BlockState state = blueprint.getBlockState(neighbour);
+                if (state == null || !getRenderState(state).isSolidRender(blockAccess, neighbour))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A section meshed by a worker, holding the filled buffer builders until it is uploaded.
+     */
+    private static final class MeshedSection
+    {
+        private final BlockPos                        origin;
+        private final AxisAlignedBB                   bounds;
+        private final Map<RenderType, BufferBuilder> builders;
+        private final Set<RenderType>                 usedLayers;
+        private final long                            hash;
+        private final int                             generation;
+
+        private MeshedSection(
+          final BlockPos origin,
+          final AxisAlignedBB bounds,
+          final Map<RenderType, BufferBuilder> builders,
+          final Set<RenderType> usedLayers,
+          final long hash,
+          final int generation)
+        {
+            this.origin = origin;
+            this.bounds = bounds;
+            this.builders = builders;
+            this.usedLayers = usedLayers;
+            this.hash = hash;
+            this.generation = generation;
+        }
+
+        /**
+         * Upload the meshes, must be called on the render thread.
+         *
+         * @return the section or null if nothing in it is rendered.
+         */
+        @Nullable
+        private RenderSection upload()
+        {
+            final Map<RenderType, VertexBuffer> vertexBuffers = new HashMap<>();
+            for (final RenderType renderType : usedLayers)
+            {
+                final BufferBuilder buffer = builders.get(renderType);
+                OptifineCompat.getInstance().beforeBuilderUpload(buffer);
+                final VertexBuffer vertexBuffer = new VertexBuffer(DefaultVertexFormats.BLOCK);
+                vertexBuffer.upload(buffer);
+                vertexBuffers.put(renderType, vertexBuffer);
+            }
+            releaseBuilders(builders);
+            return vertexBuffers.isEmpty() ? null : new RenderSection(bounds, vertexBuffers);
+        }
+
+        /**
+         * Drop the meshes without uploading them.
+         */
+        private void discard()
+        {
+            for (final RenderType renderType : usedLayers)
+            {
+                builders.get(renderType).popNextBuffer();
+            }
+            releaseBuilders(builders);
+        }
+    }
+
+    /**
+     * The meshed blocks of a 16x16x16 part of the blueprint.
+     */
+    private static final class RenderSection implements AutoCloseable
+    {
+        /**
+         * The blueprint area of the section, grown by one block to cover view bobbing.
+         */
+        private final AxisAlignedBB bounds;
+
+        /**
+         * The buffers of the layers which have vertices.
+         */
+        private final Map<RenderType, VertexBuffer> vertexBuffers;
+
+        private RenderSection(final AxisAlignedBB bounds, final Map<RenderType, VertexBuffer> vertexBuffers)
+        {
+            this.bounds = bounds.inflate(1.0D);
+            this.vertexBuffers = vertexBuffers;
+        }
+
+        /**
+         * Check if the section can be seen.
+         *
+         * @param frustum        the camera frustum, prepared with the camera position relative to the blueprint.
+         * @param camera         the camera position relative to the blueprint.
+         * @param maxDistanceSqr the squared render distance.
+         * @return true if it is inside the frustum and render distance.
+         */
+        private boolean isVisible(final ClippingHelper frustum, final Vector3d camera, final double maxDistanceSqr)
+        {
+            final double dx = Math.max(0, Math.max(bounds.minX - camera.x(), camera.x() - bounds.maxX));
+            final double dy = Math.max(0, Math.max(bounds.minY - camera.y(), camera.y() - bounds.maxY));
+            final double dz = Math.max(0, Math.max(bounds.minZ - camera.z(), camera.z() - bounds.maxZ));
+            return dx * dx + dy * dy + dz * dz <= maxDistanceSqr && frustum.isVisible(bounds);
+        }
+
+        @Override
+        public void close()
+        {
+            vertexBuffers.values().forEach(VertexBuffer::close);
+        }
+    }
 }
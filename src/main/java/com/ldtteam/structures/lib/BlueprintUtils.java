@@ -7,6 +7,7 @@ import com.ldtteam.structures.client.BlueprintEntityInfoTransformHandler;
 import com.ldtteam.structurize.Structurize;
 import com.ldtteam.structurize.api.util.Log;
 import com.ldtteam.structurize.util.BlockInfo;
+import net.minecraft.block.BlockState;
 import net.minecraft.block.Blocks;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.EntityType;
@@ -44,20 +45,39 @@ public final class BlueprintUtils
      */
     public static TileEntity getTileEntityFromPos(final Blueprint blueprint, final BlockPos pos, final BlueprintBlockAccess access)
     {
-        final BlockInfo blockInfo = getBlockInfoFromPos(blueprint, pos);
-        if (blockInfo.getTileEntityData() != null)
+        if (blueprint.getRawTileEntityData(pos.getX(), pos.getY(), pos.getZ()) != null)
         {
-            return constructTileEntity(blockInfo, access);
+            return constructTileEntity(getBlockInfoFromPos(blueprint, pos), access);
         }
         return null;
     }
 
+    /**
+     * Get the blockInfo at a certain position, air if outside of the blueprint.
+     *
+     * @param blueprint the blueprint.
+     * @param pos       the local position.
+     * @return the blockInfo.
+     */
     public static BlockInfo getBlockInfoFromPos(final Blueprint blueprint, final BlockPos pos)
     {
-        final BlockInfo blockInfo = blueprint.getBlockInfoAsMap().get(pos);
+        final BlockInfo blockInfo = blueprint.getBlockInfo(pos);
         return blockInfo == null ? DEFAULT_FACTORY.apply(pos) : blockInfo;
     }
 
+    /**
+     * Get the blockState at a certain position, air if outside of the blueprint.
+     *
+     * @param blueprint the blueprint.
+     * @param pos       the local position.
+     * @return the blockState.
+     */
+    public static BlockState getBlockStateFromPos(final Blueprint blueprint, final BlockPos pos)
+    {
+        final BlockState state = blueprint.getBlockState(pos);
+        return state == null ? Blocks.AIR.defaultBlockState() : state;
+    }
+
     /**
      * Creates a list of tileentities located in the blueprint, placed inside that blueprints block access world.
      *
@@ -68,7 +88,7 @@ public final class BlueprintUtils
     @NotNull
     public static List<TileEntity> instantiateTileEntities(@NotNull final Blueprint blueprint, @NotNull final BlueprintBlockAccess blockAccess)
     {
-        return blueprint.getBlockInfoAsList()
+        return blueprint.getTileEntityInfoAsList()
             .stream()
             .map(blockInfo -> BlueprintBlockInfoTransformHandler.getInstance().Transform(blockInfo))
             .filter(blockInfo -> blockInfo.getTileEntityData() != null)
@@ -96,8 +96,8 @@ public class ScanCommand extends AbstractCommand
             return 0;
         }
 
-        ItemScanTool.saveStructure(world, from, to, player, name == null ? "" : name, true, anchorPos);
-        source.sendFailure(new TranslationTextComponent(SCAN_SUCCESS_MESSAGE));
+        // The scan runs over the next ticks, success is reported once it was sent.
+        ItemScanTool.saveStructure(world, from, to, player, name == null ? "" : name, true, anchorPos, () -> source.sendFailure(new TranslationTextComponent(SCAN_SUCCESS_MESSAGE)));
         return 1;
     }
 
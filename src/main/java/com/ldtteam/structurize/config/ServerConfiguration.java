@@ -19,15 +19,52 @@ public class ServerConfiguration extends AbstractConfiguration
     public final ForgeConfigSpec.BooleanValue allowPlayerSchematics;
 
     /**
-     * Max world operations per tick (Max blocks to place, remove or replace)
+     * Max world operations per step of a queued operation (Max blocks to place, remove or replace).
+     * Steps repeat within the tick until {@link #operationBudgetMillis} is used up.
      */
     public final ForgeConfigSpec.IntValue maxOperationsPerTick;
 
+    /**
+     * Milliseconds per server tick all queued world operations may take together
+     */
+    public final ForgeConfigSpec.IntValue operationBudgetMillis;
+
+    /**
+     * Max chunk sections scanned per step of a queued scan (16x16x16 blocks each).
+     * Steps repeat within the tick until {@link #operationBudgetMillis} is used up.
+     */
+    public final ForgeConfigSpec.IntValue maxScanSectionsPerStep;
+
     /**
      * Max amount of changes cached to be able to undo
      */
     public final ForgeConfigSpec.IntValue maxCachedChanges;
 
+    /**
+     * Max estimated memory in megabytes all cached changes of all players may take together
+     */
+    public final ForgeConfigSpec.IntValue maxCachedChangesMemoryMB;
+
+    /**
+     * Max amount of the most recent changes per player kept in memory, older ones are spilled to disk
+     */
+    public final ForgeConfigSpec.IntValue maxHotChanges;
+
+    /**
+     * Replay undos and redos chunk section by chunk section with deferred neighbour updates
+     */
+    public final ForgeConfigSpec.BooleanValue batchedUndoRedo;
+
+    /**
+     * Max estimated memory in megabytes of parsed blueprints shared between placements
+     */
+    public final ForgeConfigSpec.IntValue blueprintCacheMemoryMB;
+
+    /**
+     * Min volume of blueprints which are placed region by region instead of being loaded as a whole
+     */
+    public final ForgeConfigSpec.IntValue regionPlacementVolume;
+
     /**
      * Max amount of schematics to be cached on the server
      */
@@ -58,8 +95,15 @@ public class ServerConfiguration extends AbstractConfiguration
         ignoreSchematicsFromJar = defineBoolean(builder, "ignoreSchematicsFromJar", false);
         allowPlayerSchematics = defineBoolean(builder, "allowPlayerSchematics", true);
         maxOperationsPerTick = defineInteger(builder, "maxOperationsPerTick", 1000, 0, 100000);
-        maxCachedChanges = defineInteger(builder, "maxCachedChanges", 10, 0, 100);
+        operationBudgetMillis = defineInteger(builder, "operationBudgetMillis", 10, 1, 50);
+        maxScanSectionsPerStep = defineInteger(builder, "maxScanSectionsPerStep", 32, 1, 4096);
+        maxCachedChanges = defineInteger(builder, "maxCachedChanges", 50, 0, 1000);
+        maxCachedChangesMemoryMB = defineInteger(builder, "maxCachedChangesMemoryMB", 256, 1, 65536);
+        maxHotChanges = defineInteger(builder, "maxHotChanges", 2, 0, 100);
+        batchedUndoRedo = defineBoolean(builder, "batchedUndoRedo", true);
         maxCachedSchematics = defineInteger(builder, "maxCachedSchematics", 100, 0, 100000);
+        blueprintCacheMemoryMB = defineInteger(builder, "blueprintCacheMemoryMB", 64, 0, 4096);
+        regionPlacementVolume = defineInteger(builder, "regionPlacementVolume", 4000000, 0, Integer.MAX_VALUE);
         maxBlocksChecked = defineInteger(builder, "maxBlocksChecked", 1000, 0, 100000);
         schematicBlockLimit = defineInteger(builder, "schematicBlockLimit", 100000, 1000, 1000000);
         iteratorType = defineString(builder, "iteratorType", "default");
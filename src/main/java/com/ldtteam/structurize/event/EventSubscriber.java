@@ -6,6 +6,8 @@ import com.google.common.collect.Lists;
 import com.ldtteam.structurize.Network;
 import com.ldtteam.structurize.api.util.constant.Constants;
 import com.ldtteam.structurize.commands.EntryPoint;
+import com.ldtteam.structurize.management.BlueprintCache;
+import com.ldtteam.structurize.management.BlueprintMetadataIndex;
 import com.ldtteam.structurize.management.Manager;
 import com.ldtteam.structurize.management.Structures;
 import com.ldtteam.structurize.network.messages.ServerUUIDMessage;
@@ -66,12 +68,17 @@ public class EventSubscriber
     {
         Structures.init();
         BackUpHelper.loadLinkSessionManager();
+        Manager.loadUndoHistory();
     }
 
     @SubscribeEvent
     public static void onServerStopping(final FMLServerStoppingEvent event)
     {
         BackUpHelper.saveLinkSessionManager();
+        Manager.saveUndoHistory();
+        BlueprintCache.logStatistics();
+        BlueprintCache.clear();
+        BlueprintMetadataIndex.save();
     }
 
     /**
@@ -1,6 +1,7 @@
 package com.ldtteam.structurize.items;
 
 import com.ldtteam.structures.blueprints.v1.Blueprint;
+import com.ldtteam.structures.blueprints.v1.BlueprintScanner;
 import com.ldtteam.structures.blueprints.v1.BlueprintUtil;
 import com.ldtteam.structures.helpers.Settings;
 import com.ldtteam.structurize.Network;
@@ -10,12 +11,14 @@ import com.ldtteam.structurize.api.util.Log;
 import com.ldtteam.structurize.api.util.Utils;
 import com.ldtteam.structurize.blocks.interfaces.IBlueprintDataProvider;
 import com.ldtteam.structurize.client.gui.WindowScan;
+import com.ldtteam.structurize.management.Manager;
 import com.ldtteam.structurize.management.StructureName;
 import com.ldtteam.structurize.management.Structures;
 import com.ldtteam.structurize.network.messages.SaveScanMessage;
 import com.ldtteam.structurize.util.BlockInfo;
 import com.ldtteam.structurize.util.LanguageHandler;
 import com.ldtteam.structurize.util.StructureLoadingUtils;
+import com.ldtteam.structurize.util.TickedWorldOperation;
 import net.minecraft.block.BlockState;
 import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.entity.player.ServerPlayerEntity;
@@ -27,6 +30,7 @@ import net.minecraft.nbt.CompressedStreamTools;
 import net.minecraft.nbt.NBTUtil;
 import net.minecraft.tileentity.TileEntity;
 import net.minecraft.util.ActionResultType;
+import net.minecraft.util.Util;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.text.TranslationTextComponent;
 import net.minecraft.world.World;
@@ -37,6 +41,7 @@ import java.io.FileOutputStream;
 import java.io.OutputStream;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import static com.ldtteam.structurize.api.util.constant.TranslationConstants.ANCHOR_POS_OUTSIDE_SCHEMATIC;
@@ -157,6 +162,31 @@ public class ItemScanTool extends AbstractItemWithPosSelector
       final String name,
       final boolean saveEntities,
       final Optional<BlockPos> anchorPos)
+    {
+        saveStructure(world, from, to, player, name, saveEntities, anchorPos, () -> {});
+    }
+
+    /**
+     * Scan the structure and save it to the disk.
+     *
+     * @param world        Current world.
+     * @param from         First corner.
+     * @param to           Second corner.
+     * @param player       causing this action.
+     * @param name         the name of it.
+     * @param saveEntities whether to scan in entities
+     * @param anchorPos    the optional anchor pos.
+     * @param onSent       called on the server thread once the scan was sent to the player, not called if the scan is rejected or fails.
+     */
+    public static void saveStructure(
+      @NotNull final World world,
+      @NotNull final BlockPos from,
+      @NotNull final BlockPos to,
+      @NotNull final PlayerEntity player,
+      final String name,
+      final boolean saveEntities,
+      final Optional<BlockPos> anchorPos,
+      final Runnable onSent)
     {
         if (anchorPos.isPresent())
         {
@@ -190,12 +220,35 @@ public class ItemScanTool extends AbstractItemWithPosSelector
             fileName = name;
         }
 
-        final Blueprint bp = BlueprintUtil.createBlueprint(world, blockpos, saveEntities, (short) size.getX(), (short) size.getY(), (short) size.getZ(), fileName, anchorPos);
+        final BlueprintScanner scanner = new BlueprintScanner(world, blockpos, (short) size.getX(), (short) size.getY(), (short) size.getZ());
+        Manager.addToQueue(new TickedWorldOperation(scanner, player, done -> sendScan(done, player, fileName, saveEntities, anchorPos, onSent)));
+    }
+
+    /**
+     * Turn a finished scan into a blueprint and send it to the player.
+     * The blueprint is serialized off the server thread.
+     *
+     * @param scanner      the finished scanner.
+     * @param player       the player who scanned.
+     * @param fileName     the name of the file.
+     * @param saveEntities whether to scan in entities
+     * @param anchorPos    the optional anchor pos.
+     * @param onSent       called once the scan was sent.
+     */
+    private static void sendScan(
+      @NotNull final BlueprintScanner scanner,
+      @NotNull final PlayerEntity player,
+      final String fileName,
+      final boolean saveEntities,
+      final Optional<BlockPos> anchorPos,
+      final Runnable onSent)
+    {
+        final Blueprint bp = BlueprintUtil.createBlueprint(scanner, saveEntities, fileName, anchorPos);
 
         if (!anchorPos.isPresent() && bp.getPrimaryBlockOffset().equals(new BlockPos(bp.getSizeX() / 2, 0, bp.getSizeZ() / 2)))
         {
-            final List<BlockInfo> list = bp.getBlockInfoAsList().stream()
-              .filter(blockInfo -> blockInfo.hasTileEntityData() && blockInfo.getTileEntityData().contains(TAG_BLUEPRINTDATA))
+            final List<BlockInfo> list = bp.getTileEntityInfoAsList().stream()
+              .filter(blockInfo -> blockInfo.getTileEntityData().contains(TAG_BLUEPRINTDATA))
               .collect(Collectors.toList());
 
             if (list.size() > 1)
@@ -204,7 +257,15 @@ public class ItemScanTool extends AbstractItemWithPosSelector
             }
         }
 
-        Network.getNetwork().sendToPlayer(new SaveScanMessage(BlueprintUtil.writeBlueprintToNBT(bp), fileName), (ServerPlayerEntity) player);
+        CompletableFuture.supplyAsync(() -> BlueprintUtil.writeBlueprintToNBT(bp), Util.backgroundExecutor())
+          .thenAcceptAsync(compound -> {
+              Network.getNetwork().sendToPlayer(new SaveScanMessage(compound, fileName), (ServerPlayerEntity) player);
+              onSent.run();
+          }, player.getServer())
+          .exceptionally(e -> {
+              Log.getLogger().warn("Exception while trying to scan.", e);
+              return null;
+          });
     }
 
     /**
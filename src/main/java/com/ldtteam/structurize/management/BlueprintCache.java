@@ -0,0 +1,205 @@
+package com.ldtteam.structurize.management;
+
+import com.ldtteam.structures.blueprints.v1.Blueprint;
+import com.ldtteam.structurize.Structurize;
+import com.ldtteam.structurize.api.util.Log;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Shared cache of parsed blueprints, keyed by the MD5 of their file content.
+ * Cached blueprints are never handed out directly, callers get a view which shares the block data, see {@link Blueprint#createView()}.
+ * The least recently used blueprints are evicted once the estimated size of all cached blueprints exceeds the configured limit.
+ */
+public final class BlueprintCache
+{
+    /**
+     * Rough heap cost of one voxel: the palette index and the tileEntity slot.
+     */
+    private static final int BYTES_PER_BLOCK = 2 + 4;
+
+    /**
+     * Rough heap cost of one row of the structure and tileEntity arrays.
+     */
+    private static final int BYTES_PER_ROW = 2 * 16;
+
+    /**
+     * Rough heap cost of one tileEntity, entity or palette entry.
+     */
+    private static final int BYTES_PER_ENTRY = 512;
+
+    /**
+     * Cached blueprints in access order.
+     */
+    private static final Map<String, Entry> cache = new LinkedHashMap<>(16, 0.75F, true);
+
+    /**
+     * The estimated size of all cached blueprints.
+     */
+    private static long weight = 0;
+
+    /**
+     * Cache metrics.
+     */
+    private static long hits      = 0;
+    private static long misses    = 0;
+    private static long evictions = 0;
+
+    /**
+     * Private constructor to hide implicit one.
+     */
+    private BlueprintCache()
+    {
+        /*
+         * Intentionally left empty
+         */
+    }
+
+    /**
+     * Get a view of a cached blueprint.
+     *
+     * @param md5 the MD5 of the blueprint file.
+     * @return a new view of the blueprint or null if it is not cached.
+     */
+    @Nullable
+    public static synchronized Blueprint get(@Nullable final String md5)
+    {
+        final Entry entry = md5 == null ? null : cache.get(md5);
+        if (entry == null)
+        {
+            misses++;
+            return null;
+        }
+
+        hits++;
+        return entry.blueprint.createView();
+    }
+
+    /**
+     * Add a freshly parsed blueprint to the cache.
+     * The blueprint must not be modified afterwards, keep using a view of it instead.
+     *
+     * @param md5       the MD5 of the blueprint file.
+     * @param blueprint the blueprint.
+     */
+    public static synchronized void put(@NotNull final String md5, @NotNull final Blueprint blueprint)
+    {
+        final long limit = Structurize.getConfig().getServer().blueprintCacheMemoryMB.get() * 1024L * 1024L;
+        final long size = estimateSize(blueprint);
+        if (size > limit)
+        {
+            return;
+        }
+
+        final Entry previous = cache.put(md5, new Entry(blueprint, size));
+        if (previous != null)
+        {
+            weight -= previous.size;
+        }
+        weight += size;
+
+        final Iterator<Entry> iterator = cache.values().iterator();
+        while (weight > limit && iterator.hasNext())
+        {
+            weight -= iterator.next().size;
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Drop a blueprint from the cache, for example because its file changed.
+     *
+     * @param md5 the MD5 of the blueprint file.
+     */
+    public static synchronized void invalidate(@Nullable final String md5)
+    {
+        final Entry entry = md5 == null ? null : cache.remove(md5);
+        if (entry != null)
+        {
+            weight -= entry.size;
+        }
+    }
+
+    /**
+     * Drop all blueprints from the cache.
+     */
+    public static synchronized void clear()
+    {
+        cache.clear();
+        weight = 0;
+    }
+
+    /**
+     * Log the cache metrics.
+     */
+    public static synchronized void logStatistics()
+    {
+        Log.getLogger().info(String.format("Blueprint cache: %d blueprints, ~%d KB, %d hits, %d misses, %d evictions",
+          cache.size(), weight / 1024, hits, misses, evictions));
+    }
+
+    /**
+     * @return the amount of lookups which found a cached blueprint.
+     */
+    public static synchronized long getHits()
+    {
+        return hits;
+    }
+
+    /**
+     * @return the amount of lookups which did not find a cached blueprint.
+     */
+    public static synchronized long getMisses()
+    {
+        return misses;
+    }
+
+    /**
+     * @return the amount of blueprints evicted to stay within the size limit.
+     */
+    public static synchronized long getEvictions()
+    {
+        return evictions;
+    }
+
+    /**
+     * @return the estimated size of all cached blueprints in bytes.
+     */
+    public static synchronized long getWeight()
+    {
+        return weight;
+    }
+
+    /**
+     * Roughly estimate the heap size of a blueprint.
+     *
+     * @param blueprint the blueprint.
+     * @return the estimated size in bytes.
+     */
+    private static long estimateSize(final Blueprint blueprint)
+    {
+        final long rows = (long) blueprint.getSizeY() * blueprint.getSizeZ();
+        final long entries = blueprint.getTileEntityInfoAsList().size() + blueprint.getEntities().length + blueprint.getPalleteSize();
+        return rows * (BYTES_PER_ROW + (long) blueprint.getSizeX() * BYTES_PER_BLOCK) + entries * BYTES_PER_ENTRY;
+    }
+
+    /**
+     * A cached blueprint with its estimated size.
+     */
+    private static final class Entry
+    {
+        private final Blueprint blueprint;
+        private final long      size;
+
+        private Entry(final Blueprint blueprint, final long size)
+        {
+            this.blueprint = blueprint;
+            this.size = size;
+        }
+    }
+}
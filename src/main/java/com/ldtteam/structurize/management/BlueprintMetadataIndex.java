@@ -0,0 +1,253 @@
+package com.ldtteam.structurize.management;
+
+import com.ldtteam.structures.blueprints.v1.BlueprintMetadata;
+import com.ldtteam.structurize.api.util.Log;
+import com.ldtteam.structurize.util.BackUpHelper;
+import net.minecraft.nbt.CompoundNBT;
+import net.minecraft.nbt.ListNBT;
+import net.minecraftforge.common.util.Constants;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Index of blueprint metadata, keyed by the MD5 of the blueprint file content, and of the MD5 of each discovered file by its path, size and modification time.
+ * The index is stored beside the schematics folder, so listing schematics does not have to read their files again after the first discovery.
+ */
+public final class BlueprintMetadataIndex
+{
+    /**
+     * The file name of the index.
+     */
+    private static final String INDEX_FILE = "blueprint_index.dat";
+
+    /**
+     * The format version of the index, an index with another version is discarded.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The tags of the index file.
+     */
+    private static final String TAG_VERSION = "version";
+    private static final String TAG_ENTRIES = "entries";
+    private static final String TAG_FILES   = "files";
+    private static final String TAG_PATH    = "path";
+    private static final String TAG_SIZE    = "size";
+    private static final String TAG_MTIME   = "mtime";
+    private static final String TAG_MD5     = "md5";
+
+    /**
+     * The metadata by MD5.
+     */
+    private static final Map<String, BlueprintMetadata> entries = new HashMap<>();
+
+    /**
+     * The MD5s which have been looked up or added since the index was loaded, all others are dropped on save.
+     */
+    private static final Set<String> used = new HashSet<>();
+
+    /**
+     * The discovered files by path.
+     */
+    private static final Map<String, FileEntry> files = new HashMap<>();
+
+    /**
+     * The paths which have been looked up or added since the index was loaded, all others are dropped on save.
+     */
+    private static final Set<String> usedFiles = new HashSet<>();
+
+    /**
+     * The file the index was loaded from or null if it is only kept in memory.
+     */
+    @Nullable
+    private static File indexFile = null;
+
+    /**
+     * Whether an index has been loaded.
+     */
+    private static boolean loaded = false;
+
+    /**
+     * Whether the index changed since it was loaded or saved.
+     */
+    private static boolean dirty = false;
+
+    /**
+     * Private constructor to hide implicit one.
+     */
+    private BlueprintMetadataIndex()
+    {
+        /*
+         * Intentionally left empty
+         */
+    }
+
+    /**
+     * Load the index stored in a schematics folder, saving the previously loaded index first.
+     * Nothing happens if the index of this folder is loaded already.
+     *
+     * @param schematicsFolder the schematics folder or null to keep the index in memory only.
+     */
+    public static synchronized void load(@Nullable final File schematicsFolder)
+    {
+        final File file = schematicsFolder == null ? null : new File(schematicsFolder, INDEX_FILE);
+        if (loaded && Objects.equals(file, indexFile))
+        {
+            return;
+        }
+
+        save();
+        entries.clear();
+        used.clear();
+        files.clear();
+        usedFiles.clear();
+        indexFile = file;
+        loaded = true;
+
+        final CompoundNBT data = BackUpHelper.loadNBTFromPath(file);
+        if (data == null || data.getInt(TAG_VERSION) != VERSION)
+        {
+            return;
+        }
+
+        final CompoundNBT entriesTag = data.getCompound(TAG_ENTRIES);
+        for (final String md5 : entriesTag.getAllKeys())
+        {
+            entries.put(md5, BlueprintMetadata.readFromNBT(entriesTag.getCompound(md5)));
+        }
+
+        final ListNBT filesTag = data.getList(TAG_FILES, Constants.NBT.TAG_COMPOUND);
+        for (int i = 0; i < filesTag.size(); i++)
+        {
+            final CompoundNBT fileTag = filesTag.getCompound(i);
+            files.put(fileTag.getString(TAG_PATH), new FileEntry(fileTag.getLong(TAG_SIZE), fileTag.getLong(TAG_MTIME), fileTag.getString(TAG_MD5)));
+        }
+        Log.getLogger().info("Loaded " + entries.size() + " indexed blueprints from " + file);
+    }
+
+    /**
+     * Write the index to its file if it changed, entries which have not been used since it was loaded are dropped.
+     */
+    public static synchronized void save()
+    {
+        if (indexFile == null || (!dirty && used.size() == entries.size() && usedFiles.size() == files.size()))
+        {
+            return;
+        }
+
+        entries.keySet().retainAll(used);
+        final CompoundNBT entriesTag = new CompoundNBT();
+        for (final Map.Entry<String, BlueprintMetadata> entry : entries.entrySet())
+        {
+            entriesTag.put(entry.getKey(), entry.getValue().writeToNBT());
+        }
+
+        files.keySet().retainAll(usedFiles);
+        final ListNBT filesTag = new ListNBT();
+        for (final Map.Entry<String, FileEntry> entry : files.entrySet())
+        {
+            final CompoundNBT fileTag = new CompoundNBT();
+            fileTag.putString(TAG_PATH, entry.getKey());
+            fileTag.putLong(TAG_SIZE, entry.getValue().size);
+            fileTag.putLong(TAG_MTIME, entry.getValue().lastModified);
+            fileTag.putString(TAG_MD5, entry.getValue().md5);
+            filesTag.add(fileTag);
+        }
+
+        final CompoundNBT data = new CompoundNBT();
+        data.putInt(TAG_VERSION, VERSION);
+        data.put(TAG_ENTRIES, entriesTag);
+        data.put(TAG_FILES, filesTag);
+        BackUpHelper.saveNBTToPath(indexFile, data);
+        dirty = false;
+    }
+
+    /**
+     * Get the indexed metadata of a blueprint.
+     *
+     * @param md5 the MD5 of the blueprint file.
+     * @return the metadata or null if it is not indexed.
+     */
+    @Nullable
+    public static synchronized BlueprintMetadata get(@Nullable final String md5)
+    {
+        final BlueprintMetadata metadata = md5 == null ? null : entries.get(md5);
+        if (metadata != null)
+        {
+            used.add(md5);
+        }
+        return metadata;
+    }
+
+    /**
+     * Add the metadata of a blueprint to the index.
+     *
+     * @param md5      the MD5 of the blueprint file.
+     * @param metadata the metadata.
+     */
+    public static synchronized void put(@NotNull final String md5, @NotNull final BlueprintMetadata metadata)
+    {
+        entries.put(md5, metadata);
+        used.add(md5);
+        dirty = true;
+    }
+
+    /**
+     * Get the indexed MD5 of a file, if the file did not change since it was indexed.
+     *
+     * @param path         the path of the file.
+     * @param size         the current size of the file.
+     * @param lastModified the current modification time of the file.
+     * @return the MD5 or null if the file is not indexed or changed.
+     */
+    @Nullable
+    public static synchronized String getFileMD5(@NotNull final String path, final long size, final long lastModified)
+    {
+        final FileEntry entry = files.get(path);
+        if (entry == null || entry.size != size || entry.lastModified != lastModified)
+        {
+            return null;
+        }
+        usedFiles.add(path);
+        return entry.md5;
+    }
+
+    /**
+     * Add the MD5 of a file to the index.
+     *
+     * @param path         the path of the file.
+     * @param size         the size of the file.
+     * @param lastModified the modification time of the file.
+     * @param md5          the MD5 of the file content.
+     */
+    public static synchronized void putFile(@NotNull final String path, final long size, final long lastModified, @NotNull final String md5)
+    {
+        files.put(path, new FileEntry(size, lastModified, md5));
+        usedFiles.add(path);
+        dirty = true;
+    }
+
+    /**
+     * The MD5 of a discovered file with the file attributes it was computed for.
+     */
+    private static final class FileEntry
+    {
+        private final long   size;
+        private final long   lastModified;
+        private final String md5;
+
+        private FileEntry(final long size, final long lastModified, final String md5)
+        {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.md5 = md5;
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.ldtteam.structurize.Structurize;
 import com.ldtteam.structurize.api.util.Log;
 import com.ldtteam.structurize.api.util.Shape;
 import com.ldtteam.structurize.placement.StructurePlacementUtils;
+import com.ldtteam.structurize.util.BackUpHelper;
 import com.ldtteam.structurize.util.BlockUtils;
 import com.ldtteam.structurize.util.ChangeStorage;
 import com.ldtteam.structurize.util.TickedWorldOperation;
@@ -13,16 +14,21 @@ import net.minecraft.block.Blocks;
 import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.entity.player.ServerPlayerEntity;
 import net.minecraft.item.ItemStack;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.util.Mirror;
+import net.minecraft.util.RegistryKey;
 import net.minecraft.util.Rotation;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.text.TranslationTextComponent;
+import net.minecraft.world.World;
 import net.minecraft.world.server.ServerWorld;
 import net.minecraft.world.storage.DimensionSavedDataManager;
 import net.minecraftforge.fml.server.ServerLifecycleHooks;
 import org.mariuszgromada.math.mxparser.Argument;
 import org.mariuszgromada.math.mxparser.Expression;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -42,9 +48,39 @@ public final class Manager
     private static Map<UUID, List<ChangeStorage>> changeQueue = new HashMap<>();
 
     /**
-     * List of scanTool operations.
+     * Queues of scanTool operations per dimension.
      */
-    private static LinkedList<TickedWorldOperation> scanToolOperationPool = new LinkedList<>();
+    private static Map<RegistryKey<World>, OperationQueue> scanToolOperationPool = new HashMap<>();
+
+    /**
+     * Length of a server tick in milliseconds.
+     */
+    private static final double TICK_MILLIS = 50.0D;
+
+    /**
+     * Mean tick time in milliseconds above which the operation budget is scaled down.
+     */
+    private static final double BACKOFF_MILLIS = 40.0D;
+
+    /**
+     * Smallest fraction of the operation budget kept while backing off.
+     */
+    private static final double MIN_BUDGET_FRACTION = 0.1D;
+
+    /**
+     * The server tick the remaining budget belongs to.
+     */
+    private static int budgetTick = -1;
+
+    /**
+     * Nanoseconds of the operation budget left in the current server tick, shared by all worlds.
+     */
+    private static long remainingBudgetNanos = 0;
+
+    /**
+     * Dimensions which already used their share of the budget in the current server tick.
+     */
+    private static final Set<RegistryKey<World>> tickedDimensions = new HashSet<>();
 
     /**
      * Pseudo unique id for the server
@@ -63,18 +99,63 @@ public final class Manager
      */
     public static void onWorldTick(final ServerWorld world)
     {
-        if (!scanToolOperationPool.isEmpty())
+        final OperationQueue queue = scanToolOperationPool.get(world.dimension());
+        if (queue == null)
+        {
+            return;
+        }
+
+        final MinecraftServer server = world.getServer();
+        if (server.getTickCount() != budgetTick)
+        {
+            budgetTick = server.getTickCount();
+            remainingBudgetNanos = getTickBudgetNanos(server);
+            tickedDimensions.clear();
+        }
+
+        // Leave an equal share for dimensions with queued operations which didn't tick yet.
+        int waiting = 0;
+        for (final RegistryKey<World> dimension : scanToolOperationPool.keySet())
         {
-            final TickedWorldOperation operation = scanToolOperationPool.peek();
-            if (operation != null && operation.apply(world))
+            if (dimension != world.dimension() && !tickedDimensions.contains(dimension))
             {
-                scanToolOperationPool.pop();
-                if (!operation.isUndoRedo())
-                {
-                    addToUndoRedoCache(operation.getChangeStorage());
-                }
+                waiting++;
             }
         }
+        tickedDimensions.add(world.dimension());
+
+        final long start = System.nanoTime();
+        queue.tick(world, start + remainingBudgetNanos / (waiting + 1), operation -> {
+            if (!operation.isUndoRedo() && !operation.isScan())
+            {
+                addToUndoRedoCache(operation.getChangeStorage());
+            }
+        });
+
+        if (queue.isEmpty())
+        {
+            scanToolOperationPool.remove(world.dimension());
+        }
+        remainingBudgetNanos -= System.nanoTime() - start;
+    }
+
+    /**
+     * Calculate the operation budget for one server tick.
+     * The configured budget is scaled down linearly once the mean tick time approaches 50ms.
+     *
+     * @param server the server.
+     * @return the budget in nanoseconds.
+     */
+    private static long getTickBudgetNanos(final MinecraftServer server)
+    {
+        final long budget = Structurize.getConfig().getServer().operationBudgetMillis.get() * 1_000_000L;
+        final double meanTickMillis = server.getAverageTickTime();
+        if (meanTickMillis <= BACKOFF_MILLIS)
+        {
+            return budget;
+        }
+        final double fraction = Math.max(MIN_BUDGET_FRACTION, (TICK_MILLIS - meanTickMillis) / (TICK_MILLIS - BACKOFF_MILLIS));
+        return (long) (budget * fraction);
     }
 
     /**
@@ -84,7 +165,7 @@ public final class Manager
      */
     public static void addToQueue(final TickedWorldOperation operation)
     {
-        scanToolOperationPool.push(operation);
+        scanToolOperationPool.computeIfAbsent(operation.getDimension(), key -> new OperationQueue()).add(operation);
     }
 
     /**
@@ -97,12 +178,142 @@ public final class Manager
         final List<ChangeStorage> storages = changeQueue.computeIfAbsent(storage.getPlayerID(), key -> new ArrayList<>());
         if (!storages.contains(storage))
         {
+            storage.compact();
             storages.add(0, storage);
             if (storages.size() >= Structurize.getConfig().getServer().maxCachedChanges.get())
             {
-                storages.remove(storages.size() - 1);
+                storages.remove(storages.size() - 1).discardJournal(false);
+            }
+
+            final int maxHotChanges = Structurize.getConfig().getServer().maxHotChanges.get();
+            for (int i = maxHotChanges; i < storages.size(); i++)
+            {
+                spillOrEvict(storages, storages.get(i));
+            }
+            spillChangesOverMemoryLimit(storage);
+        }
+    }
+
+    /**
+     * Spill the oldest changes of all players which are still in memory until the estimated size of the cache is within the configured limit.
+     *
+     * @param keep the storage which must stay in memory.
+     */
+    private static void spillChangesOverMemoryLimit(final ChangeStorage keep)
+    {
+        final long limit = Structurize.getConfig().getServer().maxCachedChangesMemoryMB.get() * 1024L * 1024L;
+        final List<ChangeStorage> hotStorages = new ArrayList<>();
+        long size = 0;
+        for (final List<ChangeStorage> storages : changeQueue.values())
+        {
+            for (final ChangeStorage storage : storages)
+            {
+                size += storage.getEstimatedSize();
+                if (storage != keep && !storage.isSpilled())
+                {
+                    hotStorages.add(storage);
+                }
+            }
+        }
+
+        hotStorages.sort(Comparator.comparingLong(ChangeStorage::getCreated).thenComparingInt(ChangeStorage::getID));
+        for (final ChangeStorage storage : hotStorages)
+        {
+            if (size <= limit)
+            {
+                return;
+            }
+            size -= storage.getEstimatedSize();
+            spillOrEvict(changeQueue.get(storage.getPlayerID()), storage);
+            size += storage.getEstimatedSize();
+        }
+    }
+
+    /**
+     * Spill a cached change to the undo history on disk, dropping it from the cache if that fails.
+     *
+     * @param storages the cached changes of the player.
+     * @param storage  the change to spill.
+     */
+    private static void spillOrEvict(final List<ChangeStorage> storages, final ChangeStorage storage)
+    {
+        if (!storage.spill(getUndoHistoryDir(storage.getPlayerID())))
+        {
+            storages.remove(storage);
+        }
+    }
+
+    /**
+     * Get the directory the undo history of a player is spilled to.
+     *
+     * @param player the player.
+     * @return the directory.
+     */
+    private static File getUndoHistoryDir(final UUID player)
+    {
+        return new File(BackUpHelper.getUndoHistoryDir(), player.toString());
+    }
+
+    /**
+     * Load the spilled undo history of all players, only the headers are read until a change is replayed.
+     */
+    public static void loadUndoHistory()
+    {
+        changeQueue.clear();
+        final File[] playerDirs = BackUpHelper.getUndoHistoryDir().listFiles(File::isDirectory);
+        if (playerDirs == null)
+        {
+            return;
+        }
+
+        final int maxCachedChanges = Structurize.getConfig().getServer().maxCachedChanges.get();
+        for (final File playerDir : playerDirs)
+        {
+            final File[] files = playerDir.listFiles((dir, name) -> name.endsWith(ChangeStorage.JOURNAL_EXTENSION));
+            if (files == null)
+            {
+                continue;
+            }
+
+            final List<ChangeStorage> storages = new ArrayList<>();
+            for (final File file : files)
+            {
+                try
+                {
+                    storages.add(ChangeStorage.readJournalHeader(file));
+                }
+                catch (final IOException e)
+                {
+                    Log.getLogger().warn("Dropping unreadable undo journal " + file, e);
+                    file.delete();
+                }
+            }
+
+            storages.sort(Comparator.comparingLong(ChangeStorage::getCreated).reversed());
+            while (storages.size() >= Math.max(1, maxCachedChanges))
+            {
+                storages.remove(storages.size() - 1).discardJournal(false);
+            }
+            for (final ChangeStorage storage : storages)
+            {
+                changeQueue.computeIfAbsent(storage.getPlayerID(), key -> new ArrayList<>()).add(storage);
+            }
+        }
+    }
+
+    /**
+     * Spill the undo history of all players to disk, so it survives a restart.
+     */
+    public static void saveUndoHistory()
+    {
+        for (final List<ChangeStorage> storages : changeQueue.values())
+        {
+            for (final ChangeStorage storage : new ArrayList<>(storages))
+            {
+                spillOrEvict(storages, storage);
             }
         }
+        changeQueue.clear();
     }
 
     /**
@@ -558,6 +769,7 @@ public final class Manager
                 if (storage.getOperation().indexOf(TickedWorldOperation.OperationType.UNDO.toString()) == 0)
                 {
                     iterator.remove();
+                    storage.discardJournal(true);
                 }
                 return;
             }
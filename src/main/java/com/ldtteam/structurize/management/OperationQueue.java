@@ -0,0 +1,86 @@
+package com.ldtteam.structurize.management;
+
+import com.ldtteam.structurize.util.TickedWorldOperation;
+import net.minecraft.world.server.ServerWorld;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Queue of the ticked world operations of one dimension.
+ * Operations of one player run in the order they were added, players take turns round-robin.
+ */
+public class OperationQueue
+{
+    /**
+     * Operations per player, in the order the players queued their first operation.
+     */
+    private final Map<UUID, Deque<TickedWorldOperation>> operations = new LinkedHashMap<>();
+
+    /**
+     * The player index the next tick starts with.
+     */
+    private int cursor = 0;
+
+    /**
+     * Add an operation to the end of the queue of its player.
+     *
+     * @param operation the operation to add.
+     */
+    public void add(final TickedWorldOperation operation)
+    {
+        operations.computeIfAbsent(operation.getChangeStorage().getPlayerID(), key -> new ArrayDeque<>()).addLast(operation);
+    }
+
+    /**
+     * @return true if there are no queued operations.
+     */
+    public boolean isEmpty()
+    {
+        return operations.isEmpty();
+    }
+
+    /**
+     * Apply queued operations until the deadline passed.
+     * Every player with queued operations gets an equal share of the remaining time, starting with a different player every tick.
+     * If the current operation of a player finishes within its share the next one of the same player continues.
+     *
+     * @param world      the world which is ticking.
+     * @param deadline   the {@link System#nanoTime()} to stop at.
+     * @param onFinished called for every finished operation.
+     */
+    public void tick(final ServerWorld world, final long deadline, final Consumer<TickedWorldOperation> onFinished)
+    {
+        final List<UUID> players = new ArrayList<>(operations.keySet());
+        final int offset = cursor % players.size();
+        cursor = offset + 1;
+
+        for (int i = 0; i < players.size(); i++)
+        {
+            final long now = System.nanoTime();
+            if (now >= deadline)
+            {
+                break;
+            }
+
+            final UUID player = players.get((i + offset) % players.size());
+            final Deque<TickedWorldOperation> queue = operations.get(player);
+            final long sliceEnd = now + (deadline - now) / (players.size() - i);
+
+            while (!queue.isEmpty() && System.nanoTime() < sliceEnd)
+            {
+                final TickedWorldOperation operation = queue.peekFirst();
+                if (operation.apply(world, sliceEnd))
+                {
+                    queue.pollFirst();
+                    onFinished.accept(operation);
+                }
+            }
+
+            if (queue.isEmpty())
+            {
+                operations.remove(player);
+            }
+        }
+    }
+}
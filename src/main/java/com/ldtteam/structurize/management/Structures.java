@@ -1,5 +1,7 @@
 package com.ldtteam.structurize.management;
 
+import com.ldtteam.structures.blueprints.v1.BlueprintMetadata;
+import com.ldtteam.structures.blueprints.v1.BlueprintUtil;
 import com.ldtteam.structurize.Structurize;
 import com.ldtteam.structurize.api.util.Log;
 import com.ldtteam.structurize.api.util.MathUtils;
@@ -13,10 +15,17 @@ import net.minecraftforge.api.distmarker.OnlyIn;
 import net.minecraftforge.fml.loading.moddiscovery.ModFileInfo;
 import net.minecraftforge.fml.server.ServerLifecycleHooks;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import static com.ldtteam.structurize.api.util.constant.Constants.SECONDS_A_MINUTE;
@@ -58,6 +67,11 @@ public final class Structures
      */
     public static final String SCHEMATICS_SEPARATOR = "/";
 
+    /**
+     * The amount of threads schematic files are hashed with during discovery.
+     */
+    private static final int DISCOVERY_THREADS = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), 8));
+
     /**
      * Hashmap of schematic pieces by UUID.
      */
@@ -91,6 +105,12 @@ public final class Structures
     @NotNull
     private static final Map<String, String> fileMap = new HashMap<>();
 
+    /**
+     * The MD5s of files whose header could not be read, so they are not read again on each lookup.
+     */
+    @NotNull
+    private static final Set<String> unreadableMetadata = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
     /**
      * Whether or not the schematics list have changed.
      */
@@ -105,11 +125,13 @@ public final class Structures
     }
 
     /**
-     * Calls {@link #loadStyleMaps()}.
+     * Calls {@link #loadStyleMaps()} and stores the metadata of newly discovered schematics in the {@link BlueprintMetadataIndex}.
      */
     public static void init()
     {
+        BlueprintMetadataIndex.load(Structurize.proxy.getSchematicsFolder());
         loadStyleMaps();
+        BlueprintMetadataIndex.save();
     }
 
     /**
@@ -173,6 +195,7 @@ public final class Structures
             checkDirectory(clientSchems.toPath().resolve(SCHEMATICS_SCAN).toFile());
             loadSchematicsForPrefix(clientSchems.toPath(), SCHEMATICS_SCAN);
         }
+        BlueprintMetadataIndex.save();
     }
 
     /**
@@ -192,18 +215,52 @@ public final class Structures
      * Load all style maps from a certain path.
      * load all the schematics inside the folder path/prefix
      * and add them in the md5Map
+     * The files are hashed in parallel, files which did not change since the last discovery take their MD5 from the {@link BlueprintMetadataIndex}.
      *
      * @param base     the base path.
      * @param prefix   either schematics, scans, cache
      */
     private static void loadSchematicsForPrefix(@NotNull final Path base, @NotNull final String prefix)
     {
+        // The maps are not thread safe, they are filled in discovery order once all files are hashed.
+        for (final Tuple<StructureName, String> schematic : discoverSchematics(base, prefix))
+        {
+            final StructureName structureName = schematic.getA();
+            fileMap.put(structureName.toString(), SCHEMATIC_EXTENSION_NEW);
+            md5Map.put(structureName.toString(), schematic.getB());
+            if (Structurize.proxy instanceof ClientProxy)
+            {
+                addSchematic(structureName);
+            }
+        }
+    }
+
+    /**
+     * Find all schematics inside the folder path/prefix and hash them on a bounded pool.
+     * Package private so the discovery can be benchmarked without the mod being loaded.
+     *
+     * @param base   the base path.
+     * @param prefix either schematics, scans, cache
+     * @return the discovered structures with their MD5, in discovery order.
+     */
+    @NotNull
+    static List<Tuple<StructureName, String>> discoverSchematics(@NotNull final Path base, @NotNull final String prefix)
+    {
+        final List<Tuple<StructureName, String>> result = new ArrayList<>();
         final Path basePath = base.toAbsolutePath();
         if (!Files.exists(basePath.resolve(prefix)))
         {
-            return;
+            return result;
         }
 
+        final long start = System.nanoTime();
+        final List<Tuple<StructureName, Future<String>>> discovered = new ArrayList<>();
+        final ExecutorService executor = Executors.newFixedThreadPool(DISCOVERY_THREADS, runnable -> {
+            final Thread thread = new Thread(runnable, "Structurize schematic discovery");
+            thread.setDaemon(true);
+            return thread;
+        });
+
         try (Stream<Path> walk = Files.walk(basePath.resolve(prefix)))
         {
             final Iterator<Path> it = walk.iterator();
@@ -226,22 +283,7 @@ public final class Structures
                     try
                     {
                         final StructureName structureName = new StructureName(relativePath);
-                        fileMap.put(structureName.toString(), SCHEMATIC_EXTENSION_NEW);
-                        final byte[] structureBytes = StructureLoadingUtils.getByteArray(relativePath);
-                        final String md5 = StructureUtils.calculateMD5(structureBytes);
-                        if (md5 == null)
-                        {
-                            fileMap.remove(structureName.toString());
-                            Log.getLogger().error("Structures: " + structureName + " with md5 null.");
-                        }
-                        else if (isSchematicSizeValid(structureBytes))
-                        {
-                            md5Map.put(structureName.toString(), md5);
-                            if (Structurize.proxy instanceof ClientProxy)
-                            {
-                                addSchematic(structureName);
-                            }
-                        }
+                        discovered.add(new Tuple<>(structureName, executor.submit(() -> discoverSchematic(path))));
                     }
                     catch (final ResourceLocationException e)
                     {
@@ -256,24 +298,162 @@ public final class Structures
         {
             Log.getLogger().warn("loadSchematicsForPrefix: Could not load schematics from " + basePath.resolve(prefix), e);
         }
+        finally
+        {
+            executor.shutdown();
+        }
+
+        for (final Tuple<StructureName, Future<String>> schematic : discovered)
+        {
+            final StructureName structureName = schematic.getA();
+            final String md5 = getDiscoveredMD5(structureName, schematic.getB());
+            if (md5 == null)
+            {
+                Log.getLogger().error("Structures: " + structureName + " with md5 null.");
+                continue;
+            }
+            result.add(new Tuple<>(structureName, md5));
+        }
+
+        Log.getLogger().info("Discovered " + discovered.size() + " schematics in " + basePath.resolve(prefix) + " in "
+                               + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        return result;
     }
 
     /**
-     * check that a schematic is not too big to be sent.
+     * Hash a schematic file and index its metadata, unless the file did not change since it was last indexed.
+     * Called from the discovery threads.
      *
-     * @param structureData data of the structure to check for.
-     * @return True when the schematic is not too big.
+     * @param path the path of the schematic file.
+     * @return the MD5 or null if the file is empty.
+     * @throws IOException if the file could not be read.
      */
-    private static boolean isSchematicSizeValid(@NotNull final byte[] structureData)
+    @Nullable
+    private static String discoverSchematic(@NotNull final Path path) throws IOException
     {
-        final byte[] compressed = StructureUtils.compress(structureData);
+        final String key = path.toUri().toString();
+        final long size = Files.size(path);
+        final long lastModified = Files.getLastModifiedTime(path).toMillis();
 
-        if (compressed == null)
+        final String indexedMD5 = BlueprintMetadataIndex.getFileMD5(key, size, lastModified);
+        if (indexedMD5 != null)
         {
-            Log.getLogger().warn("Compressed structure returned null, please retry, this shouldn't happen, ever.");
-            return false;
+            if (BlueprintMetadataIndex.get(indexedMD5) == null)
+            {
+                try (InputStream stream = Files.newInputStream(path))
+                {
+                    indexMetadata(indexedMD5, stream);
+                }
+            }
+            return indexedMD5;
+        }
+
+        final byte[] structureBytes = Files.readAllBytes(path);
+        final String md5 = StructureUtils.calculateMD5(structureBytes);
+        if (md5 != null)
+        {
+            BlueprintMetadataIndex.putFile(key, size, lastModified, md5);
+            if (BlueprintMetadataIndex.get(md5) == null)
+            {
+                indexMetadata(md5, new ByteArrayInputStream(structureBytes));
+            }
+        }
+        return md5;
+    }
+
+    /**
+     * Wait for the discovery of a schematic.
+     *
+     * @param structureName the discovered structure.
+     * @param future        the discovery task.
+     * @return the MD5 or null if the discovery failed.
+     */
+    @Nullable
+    private static String getDiscoveredMD5(@NotNull final StructureName structureName, @NotNull final Future<String> future)
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        catch (final ExecutionException e)
+        {
+            Log.getLogger().warn("Could not read schematic " + structureName, e.getCause());
+            return null;
+        }
+    }
+
+    /**
+     * Read the header of a blueprint file and add it to the {@link BlueprintMetadataIndex}.
+     *
+     * @param md5        the MD5 of the file.
+     * @param compressed the file content.
+     * @return the metadata or null if the file could not be read.
+     */
+    @Nullable
+    private static BlueprintMetadata indexMetadata(@NotNull final String md5, @NotNull final InputStream compressed)
+    {
+        try
+        {
+            final BlueprintMetadata metadata = BlueprintUtil.readBlueprintMetadata(compressed);
+            if (metadata != null)
+            {
+                BlueprintMetadataIndex.put(md5, metadata);
+            }
+            return metadata;
+        }
+        catch (final IOException e)
+        {
+            Log.getLogger().warn("Could not read the blueprint header with md5: " + md5, e);
+            return null;
+        }
+    }
+
+    /**
+     * Get the metadata of a structure without loading its block data.
+     * The metadata is taken from the {@link BlueprintMetadataIndex}, only the header of the file is read if it is not indexed yet.
+     * Files which fail to be read are remembered and not read again.
+     *
+     * @param structureName name of the structure as 'hut/wooden/Builder1'
+     * @return the metadata or null if the structure is unknown or could not be read.
+     */
+    @Nullable
+    public static BlueprintMetadata getMetadata(@NotNull final String structureName)
+    {
+        final String md5 = getMD5(structureName);
+        if (md5 == null)
+        {
+            return null;
+        }
+
+        final BlueprintMetadata indexed = BlueprintMetadataIndex.get(md5);
+        if (indexed != null || unreadableMetadata.contains(md5))
+        {
+            return indexed;
         }
-        return true;
+
+        BlueprintMetadata metadata = null;
+        try (InputStream stream = StructureLoadingUtils.getStream(structureName))
+        {
+            if (stream != null)
+            {
+                metadata = indexMetadata(md5, stream);
+            }
+        }
+        catch (final IOException e)
+        {
+            Log.getLogger().warn("Could not read the blueprint header of: " + structureName, e);
+        }
+
+        if (metadata == null)
+        {
+            unreadableMetadata.add(md5);
+        }
+        return metadata;
     }
 
     /**
@@ -451,7 +631,7 @@ public final class Structures
             final File structureFile = clientSchems.toPath().resolve(structureName.toString() + SCHEMATIC_EXTENSION_NEW).toFile();
             if (structureFile.delete())
             {
-                md5Map.remove(structureName.toString());
+                BlueprintCache.invalidate(md5Map.remove(structureName.toString()));
                 Log.getLogger().info("Structures: " + structureName + " deleted successfully");
                 return true;
             }
@@ -710,6 +890,7 @@ public final class Structures
                 try (OutputStream outputstream = new FileOutputStream(schematicFile))
                 {
                     outputstream.write(bytes);
+                    BlueprintCache.invalidate(md5);
                     Structures.addMD5ToCache(md5);
                     Manager.setSchematicDownloaded(true);
                     fileMap.put(SCHEMATICS_CACHE + SCHEMATICS_SEPARATOR + md5, SCHEMATIC_EXTENSION_NEW);
@@ -825,7 +1006,7 @@ public final class Structures
             .toFile();
         if (structureFileBlueprint.delete())
         {
-            md5Map.remove(structureName.toString());
+            BlueprintCache.invalidate(md5Map.remove(structureName.toString()));
             fileMap.remove(structureName.toString());
             return true;
         }
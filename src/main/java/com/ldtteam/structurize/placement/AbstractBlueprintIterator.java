@@ -1,14 +1,18 @@
 package com.ldtteam.structurize.placement;
 
+import com.ldtteam.structures.blueprints.v1.Blueprint;
 import com.ldtteam.structurize.api.util.BlockPosUtil;
 import com.ldtteam.structurize.placement.structure.IStructureHandler;
 import com.ldtteam.structurize.util.BlockUtils;
 import com.ldtteam.structurize.util.BlueprintPositionInfo;
+import net.minecraft.block.BlockState;
+import net.minecraft.nbt.CompoundNBT;
 import net.minecraft.util.math.BlockPos;
 import net.minecraftforge.common.util.TriPredicate;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Collections;
+import java.util.Map;
 import java.util.function.Supplier;
 
 /**
@@ -47,6 +51,12 @@ public abstract class AbstractBlueprintIterator
      */
     private boolean isRemoving;
 
+    /**
+     * The positions of the plan phase which is iterated and the index of the progressPos in them, see {@link #advance(PlacementPlan, PlacementPlan.Phase)}.
+     */
+    private int[] planPositions = null;
+    private int   planIndex     = -1;
+
     /**
      * Initialize the blueprint iterator with the structure handler.
      * @param structureHandler the structure handler.
@@ -99,6 +109,86 @@ public abstract class AbstractBlueprintIterator
         return iterateWithCondition(skipCondition, this::decrement);
     }
 
+    /**
+     * Advance to the next position of a phase of a placement plan which is not placed already.
+     * The plan replaces the skip condition of the phase, only positions which are part of the phase are visited.
+     * Whether a position is placed already is checked on its palette entry, see {@link PaletteProperties#isEqual(int, BlockState)}.
+     *
+     * @param plan  the plan, compiled with an iterator of the same type.
+     * @param phase the phase.
+     * @return Result of the advance.
+     */
+    public Result advance(final PlacementPlan plan, final PlacementPlan.Phase phase)
+    {
+        final int[] positions = plan.getPositions(phase);
+        planIndex = findPlanIndex(plan, positions);
+        planPositions = positions;
+
+        final PaletteProperties properties = plan.getPaletteProperties();
+        final Blueprint blueprint = structureHandler.getBluePrint();
+        final Map<BlockPos, CompoundNBT[]> entities = includeEntities ? blueprint.getCachedEntitiesAsMap() : Collections.emptyMap();
+        int count = 0;
+        do
+        {
+            if (++planIndex >= positions.length)
+            {
+                reset();
+                return Result.AT_END;
+            }
+            plan.unpack(positions[planIndex], progressPos);
+
+            if (!isRemoving
+                  && properties.isEqual(blueprint.getPaletteIndex(progressPos), structureHandler.getWorld().getBlockState(structureHandler.getProgressPosInWorld(progressPos)))
+                  && !entities.containsKey(progressPos))
+            {
+                structureHandler.triggerSuccess(progressPos, Collections.emptyList(), false);
+                continue;
+            }
+            return Result.NEW_BLOCK;
+        }
+        while (count++ < structureHandler.getMaxBlocksCheckedPerCall());
+
+        return Result.CONFIG_LIMIT;
+    }
+
+    /**
+     * Find the index of the progressPos in the positions of a plan phase.
+     * The index is kept between calls, the progressPos is usually at it or right before it.
+     *
+     * @param plan      the plan.
+     * @param positions the positions of the phase.
+     * @return the index or -1 to start at the beginning of the phase.
+     */
+    private int findPlanIndex(final PlacementPlan plan, final int[] positions)
+    {
+        if (progressPos.equals(NULL_POS))
+        {
+            return -1;
+        }
+
+        final int packed = plan.pack(progressPos);
+        if (positions == planPositions)
+        {
+            if (planIndex >= 0 && planIndex < positions.length && positions[planIndex] == packed)
+            {
+                return planIndex;
+            }
+            if (planIndex >= 1 && planIndex <= positions.length && positions[planIndex - 1] == packed)
+            {
+                return planIndex - 1;
+            }
+        }
+
+        for (int i = 0; i < positions.length; i++)
+        {
+            if (positions[i] == packed)
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     /**
      * Execute a supplier function to avoid duplicate code for increment and decrement functions.
      * @param skipCondition the skipCondition.
@@ -187,6 +277,7 @@ public abstract class AbstractBlueprintIterator
         BlockPosUtil.set(this.progressPos, NULL_POS);
         includeEntities = false;
         isRemoving = false;
+        planIndex = -1;
     }
 
     /**
@@ -1,23 +1,25 @@
 package com.ldtteam.structurize.placement;
 
 import com.ldtteam.structurize.placement.structure.IStructureHandler;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import net.minecraft.util.math.BlockPos;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * A hilbert space-filling curve, generalised to any dimensions.
  */
 public class BlueprintIteratorHilbert extends AbstractBlueprintIterator
 {
     /**
-     * Ordered list of positions for each layer.
+     * Ordered columns for each layer, packed as x * sizeZ + z.
+     */
+    private final int[] positions;
+    /**
+     * The shared column order.
      */
-    private final List<BlockPos> positions = new ArrayList<>();
+    private final ColumnOrder order;
     /**
-     * Current index into the positions list.
+     * Current index into the positions.
      */
     private int index;
 
@@ -25,7 +27,8 @@ public class BlueprintIteratorHilbert extends AbstractBlueprintIterator
     {
         super(structureHandler);
 
-        generateLayerPattern();
+        this.order = ColumnOrder.get("hilbert", this.size.getX(), this.size.getZ(), this::generateLayerPattern);
+        this.positions = this.order.getColumns();
     }
 
     @Override
@@ -34,7 +37,7 @@ public class BlueprintIteratorHilbert extends AbstractBlueprintIterator
         if (this.progressPos.equals(NULL_POS))
         {
             this.index = 0;
-            this.progressPos.set(this.positions.get(0));
+            setColumn(0);
             return Result.NEW_BLOCK;
         }
 
@@ -46,8 +49,8 @@ public class BlueprintIteratorHilbert extends AbstractBlueprintIterator
     {
         if (this.progressPos.equals(NULL_POS))
         {
-            this.index = (this.size.getY() & 1) == 0 ? this.positions.size() - 1 : 0;
-            this.progressPos.set(this.positions.get(this.index).above(this.size.getY() - 1));
+            this.index = (this.size.getY() & 1) == 0 ? this.positions.length - 1 : 0;
+            setColumn(this.size.getY() - 1);
             return Result.NEW_BLOCK;
         }
 
@@ -61,27 +64,29 @@ public class BlueprintIteratorHilbert extends AbstractBlueprintIterator
 
         if (!this.progressPos.equals(NULL_POS))
         {
-            for (int i = 0; i < this.positions.size(); ++i)
-            {
-                final BlockPos pos = this.positions.get(i);
-                if (pos.getX() == this.progressPos.getX() && pos.getZ() == this.progressPos.getZ())
-                {
-                    this.index = i;
-                    return;
-                }
-            }
-            this.index = 0;
+            this.index = this.order.indexOf(this.progressPos.getX() * this.size.getZ() + this.progressPos.getZ());
         }
     }
 
+    /**
+     * Set the progressPos to the column at the current index.
+     *
+     * @param y the layer.
+     */
+    private void setColumn(final int y)
+    {
+        final int column = this.positions[this.index];
+        this.progressPos.set(column / this.size.getZ(), y, column % this.size.getZ());
+    }
+
     private Result iterate(final boolean forward, final boolean up)
     {
         if (forward)
         {
-            if (this.index < this.positions.size() - 1)
+            if (this.index < this.positions.length - 1)
             {
                 ++this.index;
-                this.progressPos.set(this.positions.get(this.index).above(this.progressPos.getY()));
+                setColumn(this.progressPos.getY());
                 return Result.NEW_BLOCK;
             }
         }
@@ -90,7 +95,7 @@ public class BlueprintIteratorHilbert extends AbstractBlueprintIterator
             if (this.index > 0)
             {
                 --this.index;
-                this.progressPos.set(this.positions.get(this.index).above(this.progressPos.getY()));
+                setColumn(this.progressPos.getY());
                 return Result.NEW_BLOCK;
             }
         }
@@ -103,7 +108,7 @@ public class BlueprintIteratorHilbert extends AbstractBlueprintIterator
         final int y = this.progressPos.getY() + 1;
         if (y < this.size.getY())
         {
-            this.progressPos.set(this.positions.get(this.index).above(y));
+            setColumn(y);
             return Result.NEW_BLOCK;
         }
         return Result.AT_END;
@@ -114,26 +119,28 @@ public class BlueprintIteratorHilbert extends AbstractBlueprintIterator
         final int y = this.progressPos.getY() - 1;
         if (y >= 0)
         {
-            this.progressPos.set(this.positions.get(this.index).above(y));
+            setColumn(y);
             return Result.NEW_BLOCK;
         }
         return Result.AT_END;
     }
 
-    private void generateLayerPattern()
+    private int[] generateLayerPattern()
     {
+        final IntArrayList pattern = new IntArrayList(this.size.getX() * this.size.getZ());
         if (this.size.getX() >= this.size.getZ())
         {
-            generateHilbert(0, 0, this.size.getX(), 0, 0, this.size.getZ());
+            generateHilbert(pattern, 0, 0, this.size.getX(), 0, 0, this.size.getZ());
         }
         else
         {
-            generateHilbert(0, 0, 0, this.size.getZ(), this.size.getX(), 0);
+            generateHilbert(pattern, 0, 0, 0, this.size.getZ(), this.size.getX(), 0);
         }
+        return pattern.toIntArray();
     }
 
     // Based on https://stackoverflow.com/a/58603668/43534
-    private void generateHilbert(int x, int z, final int ax, final int az, final int bx, final int bz)
+    private void generateHilbert(final IntArrayList pattern, int x, int z, final int ax, final int az, final int bx, final int bz)
     {
         final int width = Math.abs(ax + az);
         final int height = Math.abs(bx + bz);
@@ -145,7 +152,7 @@ public class BlueprintIteratorHilbert extends AbstractBlueprintIterator
         {
             for (int i = 0; i < width; ++i, x += dax, z += daz)
             {
-                this.positions.add(new BlockPos(x, 0, z));
+                pattern.add(x * this.size.getZ() + z);
             }
             return;
         }
@@ -155,7 +162,7 @@ public class BlueprintIteratorHilbert extends AbstractBlueprintIterator
         {
             for (int i = 0; i < width; ++i, x += dbx, z += dbz)
             {
-                this.positions.add(new BlockPos(x, 0, z));
+                pattern.add(x * this.size.getZ() + z);
             }
             return;
         }
@@ -175,8 +182,8 @@ public class BlueprintIteratorHilbert extends AbstractBlueprintIterator
             }
 
             // long case: split in two parts only
-            generateHilbert(x, z, ax2, az2, bx, bz);
-            generateHilbert(x + ax2, z + az2, ax - ax2, az - az2, bx, bz);
+            generateHilbert(pattern, x, z, ax2, az2, bx, bz);
+            generateHilbert(pattern, x + ax2, z + az2, ax - ax2, az - az2, bx, bz);
         }
         else
         {
@@ -188,9 +195,9 @@ public class BlueprintIteratorHilbert extends AbstractBlueprintIterator
             }
 
             // standard case: one step up, one long horizontal, one step down
-            generateHilbert(x, z, bx2, bz2, ax2, az2);
-            generateHilbert(x + bx2, z + bz2, ax, az, bx - bx2, bz - bz2);
-            generateHilbert(x + (ax - dax) + (bx2 - dbx), z + (az - daz) + (bz2 - dbz),
+            generateHilbert(pattern, x, z, bx2, bz2, ax2, az2);
+            generateHilbert(pattern, x + bx2, z + bz2, ax, az, bx - bx2, bz - bz2);
+            generateHilbert(pattern, x + (ax - dax) + (bx2 - dbx), z + (az - daz) + (bz2 - dbz),
                     -bx2, -bz2, -(ax - ax2), -(az - az2));
         }
     }
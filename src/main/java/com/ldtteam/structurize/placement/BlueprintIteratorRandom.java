@@ -2,22 +2,30 @@ package com.ldtteam.structurize.placement;
 
 import com.ldtteam.structurize.placement.structure.IStructureHandler;
 import net.minecraft.util.math.BlockPos;
+import org.jetbrains.annotations.NotNull;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
 import java.util.Random;
 
 /**
  * Random blueprint iterator.
- * Creates a seeded list of positions and iterates it.
+ * Creates a seeded order of the columns and iterates it.
  */
 public class BlueprintIteratorRandom extends AbstractBlueprintIterator
 {
     /**
-     * Random ordered list of positions.
+     * Random ordered columns, packed as x * sizeZ + z.
      */
-    final List<BlockPos> positions = new ArrayList<>();
+    private final int[] columns;
+
+    /**
+     * The shared column order.
+     */
+    private final ColumnOrder order;
+
+    /**
+     * Current index into the columns.
+     */
+    private int index;
 
     /**
      * Initialize the blueprint iterator with the structure handler.
@@ -26,46 +34,44 @@ public class BlueprintIteratorRandom extends AbstractBlueprintIterator
     public BlueprintIteratorRandom(final IStructureHandler structureHandler)
     {
         super(structureHandler, new BlockPos(structureHandler.getBluePrint().getSizeX(), structureHandler.getBluePrint().getSizeY(), structureHandler.getBluePrint().getSizeZ()));
-        for (int x = 0; x < this.size.getX(); x++)
-        {
-            for (int z = 0; z < this.size.getZ(); z++)
-            {
-                positions.add(new BlockPos(x, 0, z));
-            }
-        }
-        Collections.shuffle(positions, new Random(this.size.hashCode()));
+        // The shuffle is seeded with the whole size, so the height is part of the id.
+        order = ColumnOrder.get("random:" + this.size.getY(), this.size.getX(), this.size.getZ(), this::generateColumns);
+        columns = order.getColumns();
     }
 
     /**
-     * Increment progressPos.
+     * Generate the random column order.
      *
-     * @return false if the all the block have been incremented through.
+     * @return the packed columns in visiting order.
      */
-    public Result increment()
+    private int[] generateColumns()
     {
-        if (this.progressPos.equals(NULL_POS))
+        final int[] columns = new int[this.size.getX() * this.size.getZ()];
+        for (int i = 0; i < columns.length; i++)
         {
-            this.progressPos.set(this.positions.get(0).getX(), 0, this.positions.get(0).getZ());
-            return Result.NEW_BLOCK;
+            columns[i] = i;
         }
-        else
+
+        // Same swaps as Collections.shuffle, so the order matches the one of the former column list.
+        final Random random = new Random(this.size.hashCode());
+        for (int i = columns.length; i > 1; i--)
         {
-            int index = this.positions.indexOf(new BlockPos(this.progressPos.getX(), 0, this.progressPos.getZ())) + 1;
-            if (index >= this.positions.size())
-            {
-                this.progressPos.set(this.positions.get(0).getX(), this.progressPos.getY() + 1, this.positions.get(0).getZ());
-                if (this.progressPos.getY() >= this.size.getY())
-                {
-                    this.reset();
-                    return Result.AT_END;
-                }
-
-                return Result.NEW_BLOCK;
-            }
-            this.progressPos.set(this.positions.get(index).getX(), this.progressPos.getY(), this.positions.get(index).getZ());
+            final int j = random.nextInt(i);
+            final int column = columns[i - 1];
+            columns[i - 1] = columns[j];
+            columns[j] = column;
         }
+        return columns;
+    }
 
-        return Result.NEW_BLOCK;
+    /**
+     * Increment progressPos.
+     *
+     * @return false if the all the block have been incremented through.
+     */
+    public Result increment()
+    {
+        return iterate(true);
     }
 
     /**
@@ -74,28 +80,73 @@ public class BlueprintIteratorRandom extends AbstractBlueprintIterator
      * @return false if progressPos can't be decremented any more.
      */
     public Result decrement()
+    {
+        return iterate(false);
+    }
+
+    /**
+     * Move to the next column, and to the next layer after the last column.
+     *
+     * @param up if bottom up, or top down.
+     * @return END if finished, or new block if continuous.
+     */
+    private Result iterate(final boolean up)
     {
         if (this.progressPos.equals(NULL_POS))
         {
-            this.progressPos.set(this.positions.get(0).getX(), this.size.getY() - 1, this.positions.get(0).getZ());
+            this.index = 0;
+            setColumn(up ? 0 : this.size.getY() - 1);
             return Result.NEW_BLOCK;
         }
-        else
+
+        this.index = getColumnIndex() + 1;
+        if (this.index >= this.columns.length)
         {
-            int index = this.positions.indexOf(new BlockPos(this.progressPos.getX(), 0, this.progressPos.getZ())) + 1;
-            if (index >= this.positions.size())
+            this.index = 0;
+            final int y = up ? this.progressPos.getY() + 1 : this.progressPos.getY() - 1;
+            if (y < 0 || y >= this.size.getY())
             {
-                this.progressPos.set(this.positions.get(0).getX(), this.progressPos.getY() - 1, this.positions.get(0).getZ());
-                if (this.progressPos.getY() < 0)
-                {
-                    this.reset();
-                    return Result.AT_END;
-                }
-                return Result.NEW_BLOCK;
+                this.reset();
+                return Result.AT_END;
             }
-            this.progressPos.set(this.positions.get(index).getX(), this.progressPos.getY(), this.positions.get(index).getZ());
+            setColumn(y);
+            return Result.NEW_BLOCK;
         }
 
+        setColumn(this.progressPos.getY());
         return Result.NEW_BLOCK;
     }
+
+    /**
+     * Get the index of the column of the progressPos, the kept index unless the progressPos was moved elsewhere.
+     *
+     * @return the index.
+     */
+    private int getColumnIndex()
+    {
+        final int column = this.progressPos.getX() * this.size.getZ() + this.progressPos.getZ();
+        return this.columns[this.index] == column ? this.index : this.order.indexOf(column);
+    }
+
+    /**
+     * Set the progressPos to the current column.
+     *
+     * @param y the layer.
+     */
+    private void setColumn(final int y)
+    {
+        final int column = this.columns[this.index];
+        this.progressPos.set(column / this.size.getZ(), y, column % this.size.getZ());
+    }
+
+    @Override
+    public void setProgressPos(@NotNull final BlockPos localPosition)
+    {
+        super.setProgressPos(localPosition);
+
+        if (!this.progressPos.equals(NULL_POS))
+        {
+            this.index = this.order.indexOf(this.progressPos.getX() * this.size.getZ() + this.progressPos.getZ());
+        }
+    }
 }
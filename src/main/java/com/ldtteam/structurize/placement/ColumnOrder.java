@@ -0,0 +1,98 @@
+package com.ldtteam.structurize.placement;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * The order an iterator visits the columns of a layer in, shared by all iterators of the same type and footprint.
+ * Columns are packed as x * sizeZ + z, the arrays must not be modified.
+ */
+public final class ColumnOrder
+{
+    /**
+     * The amount of orders kept, the least recently used one is dropped first.
+     */
+    private static final int MAX_CACHED_ORDERS = 64;
+
+    /**
+     * The cached orders by iterator id and footprint.
+     */
+    private static final Map<String, ColumnOrder> cache = Collections.synchronizedMap(new LinkedHashMap<String, ColumnOrder>(16, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, ColumnOrder> eldest)
+        {
+            return size() > MAX_CACHED_ORDERS;
+        }
+    });
+
+    /**
+     * The packed columns in visiting order.
+     */
+    private final int[] columns;
+
+    /**
+     * The index of each packed column in the columns.
+     */
+    private final int[] indices;
+
+    /**
+     * Create a column order.
+     *
+     * @param columns   the packed columns in visiting order.
+     * @param footprint the amount of columns of the layer.
+     */
+    private ColumnOrder(final int[] columns, final int footprint)
+    {
+        this.columns = columns;
+        this.indices = new int[footprint];
+        for (int i = 0; i < columns.length; i++)
+        {
+            indices[columns[i]] = i;
+        }
+    }
+
+    /**
+     * Get the cached order of an iterator type and footprint, or generate it.
+     *
+     * @param id        the id of the iterator type.
+     * @param sizeX     the x size of the footprint.
+     * @param sizeZ     the z size of the footprint.
+     * @param generator generates the packed columns in visiting order.
+     * @return the order.
+     */
+    public static ColumnOrder get(final String id, final int sizeX, final int sizeZ, final Supplier<int[]> generator)
+    {
+        final String key = id + ":" + sizeX + ":" + sizeZ;
+        ColumnOrder order = cache.get(key);
+        if (order == null)
+        {
+            // Generated outside of the lock, a concurrent generation of the same order just produces an equal copy.
+            order = new ColumnOrder(generator.get(), sizeX * sizeZ);
+            cache.put(key, order);
+        }
+        return order;
+    }
+
+    /**
+     * @return the packed columns in visiting order, do not modify.
+     */
+    public int[] getColumns()
+    {
+        return columns;
+    }
+
+    /**
+     * Get the index of a column in the order.
+     * Columns which the order does not visit map to index 0.
+     *
+     * @param column the packed column.
+     * @return the index.
+     */
+    public int indexOf(final int column)
+    {
+        return indices[column];
+    }
+}
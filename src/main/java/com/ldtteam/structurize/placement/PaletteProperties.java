@@ -0,0 +1,191 @@
+package com.ldtteam.structurize.placement;
+
+import com.ldtteam.structures.blueprints.v1.Blueprint;
+import com.ldtteam.structurize.blocks.ModBlocks;
+import com.ldtteam.structurize.placement.structure.IStructureHandler;
+import com.ldtteam.structurize.util.BlockUtils;
+import it.unimi.dsi.fastutil.objects.Reference2ByteOpenHashMap;
+import net.minecraft.block.BlockState;
+
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+
+/**
+ * The properties placement checks per block, computed once per palette entry of a blueprint.
+ * A blueprint has few distinct states, so the checks of a paste become lookups on the palette index of a position.
+ */
+public class PaletteProperties
+{
+    /**
+     * The property bits of a palette entry.
+     */
+    public static final byte CAN_OCCLUDE  = 1;
+    public static final byte SOLID        = 2;
+    public static final byte ALWAYS_EQUAL = 4;
+
+    /**
+     * Value of states which were not checked yet.
+     */
+    private static final byte UNKNOWN = -1;
+
+    /**
+     * The blueprint and its modification count the properties were computed for.
+     */
+    private final Blueprint blueprint;
+    private final int       modificationCount;
+
+    /**
+     * The handler the properties were computed with.
+     */
+    private final IStructureHandler handler;
+
+    /**
+     * The palette of the blueprint and the property bits of each entry.
+     */
+    private final BlockState[] palette;
+    private final byte[]       properties;
+
+    /**
+     * The replaceWithSolidBlock result of the states checked so far.
+     * The handler checks world states with it, so it is memoized per state instead of per palette entry.
+     */
+    private final Reference2ByteOpenHashMap<BlockState> replaceWithSolid = new Reference2ByteOpenHashMap<>();
+
+    /**
+     * The checks handed to {@link BlockUtils#areBlockStatesEqual}, created once instead of per call.
+     */
+    private final Predicate<BlockState>               shallReplace = this::replaceWithSolidBlock;
+    private final BiPredicate<BlockState, BlockState> specialEqualRule;
+
+    /**
+     * Whether the handler places fancy.
+     */
+    private final boolean fancy;
+
+    /**
+     * Compute the properties of the palette of the blueprint of a handler.
+     *
+     * @param handler the structure handler.
+     */
+    public PaletteProperties(final IStructureHandler handler)
+    {
+        this.handler = handler;
+        this.blueprint = handler.getBluePrint();
+        this.modificationCount = blueprint.getModificationCount();
+        this.palette = blueprint.getPalette();
+        this.properties = new byte[palette.length];
+        this.replaceWithSolid.defaultReturnValue(UNKNOWN);
+        this.specialEqualRule = handler::shouldBlocksBeConsideredEqual;
+        this.fancy = handler.fancyPlacement();
+
+        for (int i = 0; i < palette.length; i++)
+        {
+            final BlockState state = palette[i];
+            byte value = 0;
+            if (state.canOcclude())
+            {
+                value |= CAN_OCCLUDE;
+            }
+            if (state.getMaterial().isSolid())
+            {
+                value |= SOLID;
+            }
+            if (fancy && state.getBlock() == ModBlocks.blockSubstitution.get())
+            {
+                value |= ALWAYS_EQUAL;
+            }
+            properties[i] = value;
+        }
+    }
+
+    /**
+     * Check if the properties still match the blueprint of the handler.
+     *
+     * @param handler the structure handler.
+     * @return true if the blueprint did not change since.
+     */
+    public boolean isValid(final IStructureHandler handler)
+    {
+        return handler == this.handler && handler.getBluePrint() == blueprint && blueprint.getModificationCount() == modificationCount;
+    }
+
+    /**
+     * Get the property bits of a palette entry.
+     *
+     * @param index the palette index.
+     * @return the property bits.
+     */
+    public byte getProperties(final int index)
+    {
+        return properties[index];
+    }
+
+    /**
+     * Check if a palette entry has a property.
+     *
+     * @param index    the palette index.
+     * @param property the property bit.
+     * @return true if so.
+     */
+    public boolean has(final int index, final byte property)
+    {
+        return (properties[index] & property) != 0;
+    }
+
+    /**
+     * Get the blockState of a palette entry.
+     *
+     * @param index the palette index.
+     * @return the blockState.
+     */
+    public BlockState getState(final int index)
+    {
+        return palette[index];
+    }
+
+    /**
+     * Check if the world already matches a palette entry, see {@link BlockUtils#areBlockStatesEqual}.
+     *
+     * @param index      the palette index.
+     * @param worldState the state in the world.
+     * @return true if the position does not need to be placed.
+     */
+    public boolean isEqual(final int index, final BlockState worldState)
+    {
+        final BlockState state = palette[index];
+        if (state == worldState || (properties[index] & ALWAYS_EQUAL) != 0)
+        {
+            return true;
+        }
+        return isEqual(state, worldState);
+    }
+
+    /**
+     * Check if the world already matches a blockState, see {@link BlockUtils#areBlockStatesEqual}.
+     *
+     * @param state      the blueprint state.
+     * @param worldState the state in the world.
+     * @return true if the position does not need to be placed.
+     */
+    public boolean isEqual(final BlockState state, final BlockState worldState)
+    {
+        return BlockUtils.areBlockStatesEqual(state, worldState, shallReplace, fancy, specialEqualRule);
+    }
+
+    /**
+     * Memoized {@link IStructureHandler#replaceWithSolidBlock(BlockState)}.
+     *
+     * @param state the state to check.
+     * @return true if it should be replaced.
+     */
+    private boolean replaceWithSolidBlock(final BlockState state)
+    {
+        byte value = replaceWithSolid.getByte(state);
+        if (value == UNKNOWN)
+        {
+            value = (byte) (handler.replaceWithSolidBlock(state) ? 1 : 0);
+            replaceWithSolid.put(state, value);
+        }
+        return value != 0;
+    }
+}
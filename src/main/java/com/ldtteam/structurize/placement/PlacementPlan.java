@@ -0,0 +1,182 @@
+package com.ldtteam.structurize.placement;
+
+import com.ldtteam.structures.blueprints.v1.Blueprint;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import net.minecraft.nbt.CompoundNBT;
+import net.minecraft.util.math.BlockPos;
+
+import java.util.Map;
+
+/**
+ * The positions each placement phase of a paste has to visit, in the order of the iterator.
+ * Compiled in one pass over the blueprint, positions a phase skips because of their palette entry or entities are left out,
+ * so the phases only check the world at positions which may need work.
+ */
+public class PlacementPlan
+{
+    /**
+     * The placement phases of a paste.
+     */
+    public enum Phase
+    {
+        /**
+         * Fluids are removed where the blueprint has no occluding block, visited in decrement order.
+         */
+        WATER_REMOVAL,
+
+        /**
+         * Blocks with a solid material.
+         */
+        SOLID,
+
+        /**
+         * Blocks without a solid material, including air.
+         */
+        NON_SOLID,
+
+        /**
+         * Positions with entities.
+         */
+        ENTITIES
+    }
+
+    /**
+     * The size of the blueprint.
+     */
+    private final BlockPos size;
+
+    /**
+     * The packed positions of each phase.
+     */
+    private final int[][] positions;
+
+    /**
+     * The palette properties the plan was compiled with.
+     */
+    private final PaletteProperties properties;
+
+    /**
+     * Create a plan.
+     *
+     * @param size       the size of the blueprint.
+     * @param positions  the packed positions of each phase.
+     * @param properties the palette properties.
+     */
+    private PlacementPlan(final BlockPos size, final int[][] positions, final PaletteProperties properties)
+    {
+        this.size = size;
+        this.positions = positions;
+        this.properties = properties;
+    }
+
+    /**
+     * Compile the plan of a structure.
+     *
+     * Only the blueprint and the iterator are used, so this may run off the server thread on a view of the blueprint.
+     *
+     * @param blueprint  the blueprint, or a view of it.
+     * @param properties the palette properties of the blueprint.
+     * @param iterator   a fresh iterator of the order to place in, it is moved through the whole structure.
+     * @return the plan.
+     */
+    public static PlacementPlan compile(final Blueprint blueprint, final PaletteProperties properties, final AbstractBlueprintIterator iterator)
+    {
+        final BlockPos size = new BlockPos(blueprint.getSizeX(), blueprint.getSizeY(), blueprint.getSizeZ());
+        final Map<BlockPos, CompoundNBT[]> entities = blueprint.getCachedEntitiesAsMap();
+
+        final IntArrayList[] lists = new IntArrayList[Phase.values().length];
+        for (int i = 0; i < lists.length; i++)
+        {
+            lists[i] = new IntArrayList();
+        }
+
+        iterator.reset();
+        while (iterator.increment() == AbstractBlueprintIterator.Result.NEW_BLOCK)
+        {
+            final BlockPos pos = iterator.progressPos;
+            final int index = blueprint.getPaletteIndex(pos);
+            if (index < 0)
+            {
+                continue;
+            }
+
+            final int packed = pack(size, pos);
+            lists[properties.has(index, PaletteProperties.SOLID) ? Phase.SOLID.ordinal() : Phase.NON_SOLID.ordinal()].add(packed);
+            if (!entities.isEmpty() && entities.containsKey(pos))
+            {
+                lists[Phase.ENTITIES.ordinal()].add(packed);
+            }
+        }
+
+        iterator.reset();
+        while (iterator.decrement() == AbstractBlueprintIterator.Result.NEW_BLOCK)
+        {
+            final int index = blueprint.getPaletteIndex(iterator.progressPos);
+            if (index >= 0 && !properties.has(index, PaletteProperties.CAN_OCCLUDE))
+            {
+                lists[Phase.WATER_REMOVAL.ordinal()].add(pack(size, iterator.progressPos));
+            }
+        }
+        iterator.reset();
+
+        final int[][] positions = new int[lists.length][];
+        for (int i = 0; i < lists.length; i++)
+        {
+            positions[i] = lists[i].toIntArray();
+        }
+        return new PlacementPlan(size, positions, properties);
+    }
+
+    /**
+     * Pack a local position.
+     *
+     * @param size the size of the blueprint.
+     * @param pos  the position.
+     * @return the packed position.
+     */
+    private static int pack(final BlockPos size, final BlockPos pos)
+    {
+        return (pos.getY() * size.getZ() + pos.getZ()) * size.getX() + pos.getX();
+    }
+
+    /**
+     * Get the packed positions of a phase, see {@link #unpack(int, BlockPos.Mutable)}.
+     *
+     * @param phase the phase.
+     * @return the positions in visiting order.
+     */
+    public int[] getPositions(final Phase phase)
+    {
+        return positions[phase.ordinal()];
+    }
+
+    /**
+     * Unpack a position of the plan.
+     *
+     * @param packed the packed position.
+     * @param pos    the position to set.
+     */
+    public void unpack(final int packed, final BlockPos.Mutable pos)
+    {
+        pos.set(packed % size.getX(), packed / (size.getX() * size.getZ()), packed / size.getX() % size.getZ());
+    }
+
+    /**
+     * Pack a local position.
+     *
+     * @param pos the position.
+     * @return the packed position.
+     */
+    public int pack(final BlockPos pos)
+    {
+        return pack(size, pos);
+    }
+
+    /**
+     * @return the palette properties the plan was compiled with.
+     */
+    public PaletteProperties getPaletteProperties()
+    {
+        return properties;
+    }
+}
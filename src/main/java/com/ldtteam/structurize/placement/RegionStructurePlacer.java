@@ -0,0 +1,131 @@
+package com.ldtteam.structurize.placement;
+
+import com.ldtteam.structures.blueprints.v1.BlueprintRegions;
+import com.ldtteam.structurize.api.util.Log;
+import com.ldtteam.structurize.placement.structure.IStructureHandler;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+
+/**
+ * Places a huge blueprint region by region, only the region which is currently placed is loaded.
+ * The handler gets the blueprint of each region, rotated and mirrored with its settings, and the placer iterates over that region.
+ */
+public class RegionStructurePlacer
+{
+    /**
+     * The regions of the blueprint.
+     */
+    private final BlueprintRegions regions;
+
+    /**
+     * The handler the regions are placed with.
+     */
+    private final IStructureHandler handler;
+
+    /**
+     * The index of the current region.
+     */
+    private int region = -1;
+
+    /**
+     * Whether the regions are visited top to bottom.
+     */
+    private boolean topDown = false;
+
+    /**
+     * The placer of the current region or null if there is none.
+     */
+    @Nullable
+    private StructurePlacer placer = null;
+
+    /**
+     * Create a new region placer.
+     *
+     * @param regions the regions of the blueprint.
+     * @param handler the handler, anchored at the position of the whole blueprint.
+     */
+    public RegionStructurePlacer(final BlueprintRegions regions, final IStructureHandler handler)
+    {
+        this.regions = regions;
+        this.handler = handler;
+    }
+
+    /**
+     * Start visiting the regions again and load the first one.
+     *
+     * @param topDown true to visit the regions top to bottom, false for bottom to top.
+     * @return true if a region was loaded.
+     */
+    public boolean start(final boolean topDown)
+    {
+        this.topDown = topDown;
+        this.region = topDown ? regions.getRegionCount() : -1;
+        return nextRegion();
+    }
+
+    /**
+     * Load the next region.
+     * Regions which fail to load are skipped.
+     *
+     * @return true if a region was loaded, false if all regions were visited.
+     */
+    public boolean nextRegion()
+    {
+        placer = null;
+        while (true)
+        {
+            region += topDown ? -1 : 1;
+            if (region < 0 || region >= regions.getRegionCount())
+            {
+                return false;
+            }
+
+            try
+            {
+                handler.setBlueprint(regions.loadRegion(region)
+                  .withRotationAndMirror(handler.getSettings().getRotation(), handler.getSettings().getMirror(), handler.getWorld()));
+                placer = new StructurePlacer(handler);
+                return true;
+            }
+            catch (final IOException e)
+            {
+                Log.getLogger().warn("Could not load region " + region + " of blueprint " + regions.getMetadata().getName(), e);
+            }
+        }
+    }
+
+    /**
+     * @return the placer of the current region or null if there is none.
+     */
+    @Nullable
+    public StructurePlacer getPlacer()
+    {
+        return placer;
+    }
+
+    /**
+     * @return the name of the blueprint.
+     */
+    public String getName()
+    {
+        return regions.getMetadata().getName();
+    }
+
+    /**
+     * @return the handler the regions are placed with.
+     */
+    public IStructureHandler getHandler()
+    {
+        return handler;
+    }
+
+    /**
+     * Release the regions, no further region can be loaded after.
+     */
+    public void close()
+    {
+        placer = null;
+        regions.close();
+    }
+}
@@ -0,0 +1,289 @@
+package com.ldtteam.structurize.placement;
+
+import com.ldtteam.structures.blueprints.v1.Blueprint;
+import com.ldtteam.structurize.api.util.ItemStackUtils;
+import com.ldtteam.structurize.api.util.ItemStorage;
+import com.ldtteam.structurize.api.util.Log;
+import com.ldtteam.structurize.blocks.ModBlocks;
+import com.ldtteam.structurize.placement.handlers.placement.IPlacementHandler;
+import com.ldtteam.structurize.placement.handlers.placement.PlacementHandlers;
+import com.ldtteam.structurize.placement.structure.IStructureHandler;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.EntityType;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.CompoundNBT;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.Util;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Calculates the full list of items a blueprint requires, without looking at what is already placed in the world.
+ * The blueprint is grouped by palette entry and tileEntity data on a background thread, the placement handlers are then asked once per group on the server thread.
+ * This is an API for callers which want the complete material list of a blueprint, such as builders of other mods,
+ * {@link StructurePlacer.Operation#GET_RES_REQUIREMENTS} remains the world-aware variant which skips blocks that are already placed.
+ */
+public final class ResourceRequirementCalculator
+{
+    /**
+     * Private constructor to hide the implicit one.
+     */
+    private ResourceRequirementCalculator()
+    {
+        // Hides implicit constructor.
+    }
+
+    /**
+     * The positions of a blueprint which share a palette entry and tileEntity data.
+     */
+    private static final class Group
+    {
+        /**
+         * The palette index.
+         */
+        private final int index;
+
+        /**
+         * The first local position of the group, as long.
+         */
+        private final long pos;
+
+        /**
+         * Whether the positions have tileEntity data.
+         */
+        private final boolean hasTileEntity;
+
+        /**
+         * The amount of positions.
+         */
+        private int count = 0;
+
+        /**
+         * Create a group.
+         *
+         * @param index         the palette index.
+         * @param pos           the first local position.
+         * @param hasTileEntity whether the positions have tileEntity data.
+         */
+        private Group(final int index, final long pos, final boolean hasTileEntity)
+        {
+            this.index = index;
+            this.pos = pos;
+            this.hasTileEntity = hasTileEntity;
+        }
+    }
+
+    /**
+     * Start calculating the requirements of the blueprint of a handler, must be called on the server thread.
+     * The future completes on the server thread, poll it with {@link CompletableFuture#isDone()}.
+     *
+     * @param handler the structure handler.
+     * @return the future of the required items with their amounts.
+     */
+    public static CompletableFuture<List<ItemStorage>> calculate(final IStructureHandler handler)
+    {
+        // The view has its own caches, so the background thread does not touch the blueprint of the handler.
+        final Blueprint view = handler.getBluePrint().createView();
+        final MinecraftServer server = handler.getWorld().getServer();
+        final Executor executor = server == null ? Runnable::run : server;
+
+        return CompletableFuture.supplyAsync(() -> group(view), Util.backgroundExecutor())
+                 .thenApplyAsync(groups -> resolve(handler, view, groups), executor)
+                 .whenComplete((result, e) -> {
+                     if (e != null)
+                     {
+                         Log.getLogger().warn("Could not calculate the resource requirements of " + view.getName(), e);
+                     }
+                 });
+    }
+
+    /**
+     * Group the positions of a blueprint.
+     *
+     * @param blueprint the blueprint.
+     * @return the groups.
+     */
+    private static List<Group> group(final Blueprint blueprint)
+    {
+        final Group[] plainGroups = new Group[blueprint.getPalette().length];
+        final Int2ObjectOpenHashMap<Map<CompoundNBT, Group>> tileEntityGroups = new Int2ObjectOpenHashMap<>();
+        final BlockPos.Mutable pos = new BlockPos.Mutable();
+
+        for (int y = 0; y < blueprint.getSizeY(); y++)
+        {
+            for (int z = 0; z < blueprint.getSizeZ(); z++)
+            {
+                for (int x = 0; x < blueprint.getSizeX(); x++)
+                {
+                    final int index = blueprint.getPaletteIndex(pos.set(x, y, z));
+                    final CompoundNBT data = blueprint.getRawTileEntityData(x, y, z);
+
+                    Group group;
+                    if (data == null)
+                    {
+                        group = plainGroups[index];
+                        if (group == null)
+                        {
+                            group = new Group(index, pos.asLong(), false);
+                            plainGroups[index] = group;
+                        }
+                    }
+                    else
+                    {
+                        // The stored data carries its position, positions which only differ in it share their items.
+                        final CompoundNBT key = data.copy();
+                        key.remove("x");
+                        key.remove("y");
+                        key.remove("z");
+
+                        Map<CompoundNBT, Group> groups = tileEntityGroups.get(index);
+                        if (groups == null)
+                        {
+                            groups = new HashMap<>();
+                            tileEntityGroups.put(index, groups);
+                        }
+                        group = groups.get(key);
+                        if (group == null)
+                        {
+                            group = new Group(index, pos.asLong(), true);
+                            groups.put(key, group);
+                        }
+                    }
+                    group.count++;
+                }
+            }
+        }
+
+        final List<Group> result = new ArrayList<>();
+        for (final Group group : plainGroups)
+        {
+            if (group != null)
+            {
+                result.add(group);
+            }
+        }
+        for (final Map<CompoundNBT, Group> groups : tileEntityGroups.values())
+        {
+            result.addAll(groups.values());
+        }
+        return result;
+    }
+
+    /**
+     * Ask the placement handlers for the items of each group and merge them.
+     *
+     * @param handler   the structure handler.
+     * @param blueprint the view of the blueprint the groups were built from.
+     * @param groups    the groups.
+     * @return the required items with their amounts.
+     */
+    private static List<ItemStorage> resolve(final IStructureHandler handler, final Blueprint blueprint, final List<Group> groups)
+    {
+        final World world = handler.getWorld();
+        final BlockState[] palette = blueprint.getPalette();
+        final Map<ItemStorage, ItemStorage> requirements = new HashMap<>();
+
+        for (final Group group : groups)
+        {
+            final BlockPos localPos = BlockPos.of(group.pos);
+            final BlockPos worldPos = handler.getProgressPosInWorld(localPos);
+
+            BlockState state = palette[group.index];
+            if (state.getBlock() == ModBlocks.blockSolidSubstitution.get() && handler.fancyPlacement())
+            {
+                state = handler.getSolidBlockForPos(worldPos);
+            }
+            if (state.getBlock() == ModBlocks.blockTagSubstitution.get() && handler.fancyPlacement())
+            {
+                state = Blocks.AIR.defaultBlockState();
+            }
+
+            final CompoundNBT tileEntityData = group.hasTileEntity ? blueprint.getTileEntityData(worldPos, localPos) : null;
+            for (final IPlacementHandler placementHandler : PlacementHandlers.handlers)
+            {
+                if (placementHandler.canHandle(world, worldPos, state))
+                {
+                    for (final ItemStack stack : placementHandler.getRequiredItems(world, worldPos, state, tileEntityData, false))
+                    {
+                        addRequirement(handler, requirements, stack, group.count);
+                    }
+                    break;
+                }
+            }
+        }
+
+        final BlockPos pos = handler.getWorldPos().subtract(blueprint.getPrimaryBlockOffset());
+        for (final CompoundNBT compound : blueprint.getEntities())
+        {
+            if (compound == null)
+            {
+                continue;
+            }
+
+            try
+            {
+                final Optional<EntityType<?>> type = EntityType.by(compound);
+                if (type.isPresent())
+                {
+                    final Entity entity = type.get().create(world);
+                    if (entity != null)
+                    {
+                        entity.deserializeNBT(compound);
+                        for (final ItemStack stack : ItemStackUtils.getListOfStackForEntity(entity, pos))
+                        {
+                            addRequirement(handler, requirements, stack, 1);
+                        }
+                    }
+                }
+            }
+            catch (final RuntimeException e)
+            {
+                Log.getLogger().info("Couldn't restore entity", e);
+            }
+        }
+
+        return new ArrayList<>(requirements.values());
+    }
+
+    /**
+     * Merge a required stack into the requirements.
+     *
+     * @param handler      the structure handler.
+     * @param requirements the requirements so far.
+     * @param stack        the stack.
+     * @param times        how often the stack is required.
+     */
+    private static void addRequirement(final IStructureHandler handler, final Map<ItemStorage, ItemStorage> requirements, @Nullable final ItemStack stack, final int times)
+    {
+        if (ItemStackUtils.isEmpty(stack) || handler.isStackFree(stack))
+        {
+            return;
+        }
+
+        // The hash of an ItemStorage includes the stack size, so stacks are keyed with a size of one to merge different sizes of the same item.
+        final ItemStack single = stack.copy();
+        single.setCount(1);
+        final ItemStorage key = new ItemStorage(single, stack.getCount() * times, false);
+        final ItemStorage existing = requirements.get(key);
+        if (existing == null)
+        {
+            requirements.put(key, key);
+        }
+        else
+        {
+            existing.setAmount(existing.getAmount() + key.getAmount());
+        }
+    }
+}
@@ -1,11 +1,16 @@
 package com.ldtteam.structurize.placement;
 
 import com.ldtteam.structures.blueprints.v1.Blueprint;
+import com.ldtteam.structures.blueprints.v1.BlueprintMetadata;
+import com.ldtteam.structures.blueprints.v1.BlueprintRegions;
+import com.ldtteam.structurize.Structurize;
 import com.ldtteam.structurize.placement.structure.CreativeStructureHandler;
 import com.ldtteam.structurize.placement.structure.IStructureHandler;
 import com.ldtteam.structurize.api.util.Log;
 import com.ldtteam.structurize.management.Manager;
+import com.ldtteam.structurize.management.Structures;
 import com.ldtteam.structurize.util.PlacementSettings;
+import com.ldtteam.structurize.util.StructureLoadingUtils;
 import com.ldtteam.structurize.util.TickedWorldOperation;
 import net.minecraft.block.AirBlock;
 import net.minecraft.entity.player.ServerPlayerEntity;
@@ -14,6 +19,9 @@ import net.minecraft.util.Rotation;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
 
 /**
  * Utility methods related to structure placement.
@@ -32,7 +40,7 @@ public class StructurePlacementUtils
     public static void unloadStructure(@NotNull final World world, @NotNull final BlockPos startPos, @NotNull final String name, final Rotation rotation, @NotNull final Mirror mirror)
     {
         @NotNull final IStructureHandler structure = new CreativeStructureHandler(world, startPos, name, new PlacementSettings(mirror, rotation), false);
-        structure.getBluePrint().rotateWithMirror(rotation, mirror, world);
+        structure.setBlueprint(structure.getBluePrint().withRotationAndMirror(rotation, mirror, world));
 
         @NotNull final StructurePlacer placer = new StructurePlacer(structure);
         placer.executeStructureStep(world, null, new BlockPos(0, 0, 0), StructurePlacer.Operation.BLOCK_REMOVAL,
@@ -42,6 +50,7 @@ public class StructurePlacementUtils
     /**
      * Load a structure into this world
      * and place it in the right position and rotation.
+     * Structures of at least {@code regionPlacementVolume} blocks are placed region by region.
      *
      * @param worldObj the world to load it in
      * @param name     the structures name
@@ -60,8 +69,15 @@ public class StructurePlacementUtils
     {
         try
         {
+            final RegionStructurePlacer regionPlacer = loadRegions(worldObj, name, pos, new PlacementSettings(mirror, rotation), fancyPlacement);
+            if (regionPlacer != null)
+            {
+                Manager.addToQueue(new TickedWorldOperation(regionPlacer, player));
+                return;
+            }
+
             @NotNull final IStructureHandler structure = new CreativeStructureHandler(worldObj, pos, name, new PlacementSettings(mirror, rotation), fancyPlacement);
-            structure.getBluePrint().rotateWithMirror(rotation, mirror, worldObj);
+            structure.setBlueprint(structure.getBluePrint().withRotationAndMirror(rotation, mirror, worldObj));
 
             @NotNull final StructurePlacer instantPlacer = new StructurePlacer(structure);
             Manager.addToQueue(new TickedWorldOperation(instantPlacer, player));
@@ -98,7 +114,7 @@ public class StructurePlacementUtils
             {
                 structure.fancyPlacement();
             }
-            structure.getBluePrint().rotateWithMirror(rotation, mirror, worldObj);
+            structure.setBlueprint(structure.getBluePrint().withRotationAndMirror(rotation, mirror, worldObj));
 
             @NotNull final StructurePlacer instantPlacer = new StructurePlacer(structure);
             Manager.addToQueue(new TickedWorldOperation(instantPlacer, player));
@@ -109,4 +125,45 @@ public class StructurePlacementUtils
         }
     }
 
+    /**
+     * Split a huge structure into regions for a region by region placement.
+     *
+     * @param worldObj       the world to load it in
+     * @param name           the structures name
+     * @param pos            coordinates
+     * @param settings       the rotation and mirror.
+     * @param fancyPlacement if fancy or complete.
+     * @return the region placer or null if the structure is too small or can not be placed region by region.
+     */
+    @Nullable
+    private static RegionStructurePlacer loadRegions(
+      final World worldObj, @NotNull final String name,
+      @NotNull final BlockPos pos,
+      final PlacementSettings settings,
+      final boolean fancyPlacement)
+    {
+        final int minVolume = Structurize.getConfig().getServer().regionPlacementVolume.get();
+        final BlueprintMetadata metadata = minVolume > 0 ? Structures.getMetadata(name) : null;
+        if (metadata == null || (long) metadata.getSizeX() * metadata.getSizeY() * metadata.getSizeZ() < minVolume)
+        {
+            return null;
+        }
+
+        byte[] data = StructureLoadingUtils.getByteArray(Structures.SCHEMATICS_CACHE + '/' + Structures.getMD5(name));
+        if (data.length == 0)
+        {
+            data = StructureLoadingUtils.getByteArray(name);
+        }
+
+        try
+        {
+            final BlueprintRegions regions = data.length == 0 ? null : BlueprintRegions.read(data);
+            return regions == null ? null : new RegionStructurePlacer(regions, new CreativeStructureHandler(worldObj, pos, (Blueprint) null, settings, fancyPlacement));
+        }
+        catch (final IOException e)
+        {
+            Log.getLogger().warn("Could not split structure " + name + " into regions, loading it as a whole", e);
+            return null;
+        }
+    }
 }
@@ -1,7 +1,9 @@
 package com.ldtteam.structurize.placement;
 
+import com.ldtteam.structures.blueprints.v1.Blueprint;
 import com.ldtteam.structurize.Structurize;
 import com.ldtteam.structurize.api.util.ItemStackUtils;
+import com.ldtteam.structurize.api.util.ItemStorage;
 import com.ldtteam.structurize.api.util.Log;
 import com.ldtteam.structurize.blocks.ModBlocks;
 import com.ldtteam.structurize.placement.handlers.placement.IPlacementHandler;
@@ -18,16 +20,19 @@ import net.minecraft.entity.MobEntity;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.CompoundNBT;
 import net.minecraft.state.properties.DoubleBlockHalf;
+import net.minecraft.util.Util;
 import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.vector.Vector3d;
 import net.minecraft.world.World;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Supplier;
 
 /**
@@ -46,6 +51,22 @@ public class StructurePlacer
      */
     protected final IStructureHandler handler;
 
+    /**
+     * The id of the iterator type.
+     */
+    private final String iteratorId;
+
+    /**
+     * The palette properties of the blueprint, computed on first use.
+     */
+    private PaletteProperties paletteProperties = null;
+
+    /**
+     * The placement plan of the blueprint, compiled in the background on first use.
+     */
+    @Nullable
+    private CompletableFuture<PlacementPlan> plan = null;
+
     /**
      * Create a new structure placer.
      *
@@ -53,7 +74,8 @@ public class StructurePlacer
      */
     public StructurePlacer(final IStructureHandler handler)
     {
-        this.iterator = StructureIterators.getIterator(Structurize.getConfig().getServer().iteratorType.get().toString(), handler);
+        this.iteratorId = Structurize.getConfig().getServer().iteratorType.get().toString();
+        this.iterator = StructureIterators.getIterator(iteratorId, handler);
         this.handler = handler;
     }
 
@@ -64,6 +86,7 @@ public class StructurePlacer
      */
     public StructurePlacer(final IStructureHandler handler, final String id)
     {
+        this.iteratorId = id;
         this.iterator = StructureIterators.getIterator(id, handler);
         this.handler = handler;
     }
@@ -282,7 +305,7 @@ public class StructurePlacer
             }
         }
 
-        if (BlockUtils.areBlockStatesEqual(localState, worldState, handler::replaceWithSolidBlock, handler.fancyPlacement(), handler::shouldBlocksBeConsideredEqual))
+        if (getPaletteProperties().isEqual(localState, worldState))
         {
             return new BlockPlacementResult(worldPos, BlockPlacementResult.Result.SUCCESS);
         }
@@ -457,6 +480,17 @@ public class StructurePlacer
         return new BlockPlacementResult(worldPos, BlockPlacementResult.Result.MISSING_ITEMS, requiredItems);
     }
 
+    /**
+     * Start calculating the full resource requirements of the structure off the server thread.
+     * Unlike {@link Operation#GET_RES_REQUIREMENTS}, which stays the world-aware variant, this ignores what is already placed in the world.
+     * Nothing in Structurize calls it, it is meant for callers which need the complete material list of a blueprint.
+     *
+     * @return the future of the required items with their amounts, it completes on the server thread.
+     */
+    public CompletableFuture<List<ItemStorage>> calculateResourceRequirements()
+    {
+        return ResourceRequirementCalculator.calculate(handler);
+    }
 
     /**
      * Check if there is enough free space to place a structure in the world.
@@ -497,6 +531,46 @@ public class StructurePlacer
         return true;
     }
 
+    /**
+     * Get the palette properties of the blueprint, computed again when the blueprint changed.
+     * @return the properties.
+     */
+    public PaletteProperties getPaletteProperties()
+    {
+        if (paletteProperties == null || !paletteProperties.isValid(handler))
+        {
+            paletteProperties = new PaletteProperties(handler);
+            if (plan != null)
+            {
+                plan.cancel(false);
+            }
+            plan = null;
+        }
+        return paletteProperties;
+    }
+
+    /**
+     * Get the placement plan, compiled again when the blueprint changed.
+     * The plan is compiled off the server thread on a view of the blueprint, until it is ready the phases iterate with their skip conditions.
+     * @return the plan or null if it is not ready (yet).
+     */
+    @Nullable
+    public PlacementPlan getPlan()
+    {
+        final PaletteProperties properties = getPaletteProperties();
+        if (plan == null)
+        {
+            final Blueprint view = handler.getBluePrint().createView();
+            final AbstractBlueprintIterator planIterator = StructureIterators.getIterator(iteratorId, handler);
+            plan = CompletableFuture.supplyAsync(() -> PlacementPlan.compile(view, properties, planIterator), Util.backgroundExecutor());
+            plan.exceptionally(e -> {
+                Log.getLogger().warn("Could not compile the placement plan of " + view.getName(), e);
+                return null;
+            });
+        }
+        return plan.isDone() && !plan.isCompletedExceptionally() ? plan.join() : null;
+    }
+
     /**
      * Get the iterator instance.
      * @return the BlueprintIterator.
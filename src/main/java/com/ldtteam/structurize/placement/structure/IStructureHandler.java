@@ -3,14 +3,13 @@ package com.ldtteam.structurize.placement.structure;
 import com.ldtteam.structures.blueprints.v1.Blueprint;
 import com.ldtteam.structures.blueprints.v1.BlueprintUtil;
 import com.ldtteam.structurize.api.util.Log;
+import com.ldtteam.structurize.management.BlueprintCache;
 import com.ldtteam.structurize.management.Structures;
 import com.ldtteam.structurize.util.PlacementSettings;
 import com.ldtteam.structurize.util.StructureLoadingUtils;
 import com.ldtteam.structurize.util.StructureUtils;
 import net.minecraft.block.BlockState;
 import net.minecraft.item.ItemStack;
-import net.minecraft.nbt.CompoundNBT;
-import net.minecraft.nbt.CompressedStreamTools;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
 import net.minecraftforge.items.IItemHandler;
@@ -42,10 +41,19 @@ public interface IStructureHandler
             // Try the cache first
             if (Structures.hasMD5(correctStructureName))
             {
-                inputStream = StructureLoadingUtils.getStream(Structures.SCHEMATICS_CACHE + '/' + Structures.getMD5(correctStructureName));
+                final String md5 = Structures.getMD5(correctStructureName);
+                final Blueprint cached = BlueprintCache.get(md5);
+                if (cached != null)
+                {
+                    setMd5(md5);
+                    setBlueprint(cached);
+                    return;
+                }
+
+                inputStream = StructureLoadingUtils.getStream(Structures.SCHEMATICS_CACHE + '/' + md5);
                 if (inputStream != null)
                 {
-                    correctStructureName = Structures.SCHEMATICS_CACHE + '/' + Structures.getMD5(correctStructureName);
+                    correctStructureName = Structures.SCHEMATICS_CACHE + '/' + md5;
                 }
             }
 
@@ -63,9 +71,18 @@ public interface IStructureHandler
             {
                 final byte[] data = StructureLoadingUtils.getStreamAsByteArray(inputStream);
                 inputStream.close();
-                setMd5(StructureUtils.calculateMD5(data));
-                final CompoundNBT CompoundNBT = CompressedStreamTools.readCompressed(new ByteArrayInputStream(data));
-                setBlueprint(BlueprintUtil.readBlueprintFromNBT(CompoundNBT));
+                final String md5 = StructureUtils.calculateMD5(data);
+                setMd5(md5);
+                final Blueprint blueprint = BlueprintUtil.readBlueprintFromStream(new ByteArrayInputStream(data));
+                if (md5 != null && blueprint != null)
+                {
+                    BlueprintCache.put(md5, blueprint);
+                    setBlueprint(blueprint.createView());
+                }
+                else
+                {
+                    setBlueprint(blueprint);
+                }
             }
             catch (final IOException e)
             {
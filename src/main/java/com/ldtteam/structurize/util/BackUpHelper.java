@@ -26,6 +26,7 @@ public final class BackUpHelper
     private static final String FILENAME_EXT_DAT = ".dat";
     private static final String FILENAME_STRUCTURIZE_PATH = Constants.MOD_ID;
     private static final String FILENAME_LINKSESSION = "_linksession";
+    private static final String FOLDERNAME_UNDO_HISTORY = "undo";
     // ISO_LOCAL_DATE_TIME with dots
     private static final DateTimeFormatter BACKUP_TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH.mm.ss");
 
@@ -106,6 +107,17 @@ public final class BackUpHelper
         return ServerLifecycleHooks.getCurrentServer().getWorldPath(new FolderName(FILENAME_STRUCTURIZE_PATH)).toFile();
     }
 
+    /**
+     * Getter for the undo history directory under the mod directory
+     *
+     * @return File: undo history directory
+     */
+    @NotNull
+    public static File getUndoHistoryDir()
+    {
+        return new File(getSaveDir(), FOLDERNAME_UNDO_HISTORY);
+    }
+
     /**
      * Getter for a casual file location
      *
@@ -1,20 +1,45 @@
 package com.ldtteam.structurize.util;
 
 import com.ldtteam.structurize.Structurize;
+import com.ldtteam.structurize.api.util.Log;
 import com.ldtteam.structurize.management.Manager;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.objects.Reference2ShortOpenHashMap;
+import it.unimi.dsi.fastutil.shorts.ShortArrayList;
+import net.minecraft.block.BlockState;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.EntityType;
-import net.minecraft.nbt.CompoundNBT;
+import net.minecraft.nbt.*;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.Direction;
 import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.SectionPos;
 import net.minecraft.world.World;
+import net.minecraft.world.server.ServerWorld;
+import net.minecraftforge.common.util.Constants;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.*;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.stream.Collectors;
 
 /**
  * Change storage to store changes to an area to be able to undo them.
+ * Changes are kept as a columnar journal: packed positions, palette indexed pre and post states and serialized tileEntities.
+ * Older journals are spilled to a file and memory-mapped again while they are replayed, see {@link #spill(File)}.
  */
 public class ChangeStorage
 {
@@ -29,9 +54,87 @@ public class ChangeStorage
     private final int id;
 
     /**
-     * List of blocks with position.
+     * Marks a missing state, before any data was added for that side of the change.
      */
-    private final Map<BlockPos, BlockChangeData> blocks = new HashMap<>();
+    private static final short NO_STATE = -1;
+
+    /**
+     * Rough heap cost of one journal entry: packed position, two state indices and the position lookup entry.
+     */
+    private static final int BYTES_PER_ENTRY = 8 + 2 + 2 + 16;
+
+    /**
+     * File extension of spilled journals.
+     */
+    public static final String JOURNAL_EXTENSION = ".journal";
+
+    /**
+     * Magic number and version at the start of every journal file.
+     */
+    private static final int JOURNAL_MAGIC   = 0x53554E44;
+    private static final int JOURNAL_VERSION = 1;
+
+    /**
+     * Size of the fixed journal file header: magic, version and the offset of the columns.
+     */
+    private static final int JOURNAL_HEADER_SIZE = 12;
+
+    /**
+     * Tag names of the journal metadata.
+     */
+    private static final String TAG_PALETTE           = "palette";
+    private static final String TAG_PRE_TILEENTITIES  = "preTileEntities";
+    private static final String TAG_POST_TILEENTITIES = "postTileEntities";
+    private static final String TAG_INDEX             = "index";
+    private static final String TAG_DATA              = "data";
+    private static final String TAG_REMOVED_ENTITIES  = "removedEntities";
+    private static final String TAG_ADDED_ENTITIES    = "addedEntities";
+
+    /**
+     * Packed positions of the changed blocks, see {@link BlockPos#asLong()}.
+     */
+    private final LongArrayList positions = new LongArrayList();
+
+    /**
+     * Palette indices of the states before the change.
+     */
+    private final ShortArrayList preStates = new ShortArrayList();
+
+    /**
+     * Palette indices of the states after the change.
+     */
+    private final ShortArrayList postStates = new ShortArrayList();
+
+    /**
+     * The states used by this storage.
+     */
+    private final List<BlockState> palette = new ArrayList<>();
+
+    /**
+     * Reverse lookup of the palette.
+     */
+    private final Reference2ShortOpenHashMap<BlockState> paletteIndices = new Reference2ShortOpenHashMap<>();
+
+    /**
+     * Serialized tileEntities before the change, by entry index.
+     */
+    private final Int2ObjectOpenHashMap<CompoundNBT> preTileEntities = new Int2ObjectOpenHashMap<>();
+
+    /**
+     * Serialized tileEntities after the change, by entry index.
+     */
+    private final Int2ObjectOpenHashMap<CompoundNBT> postTileEntities = new Int2ObjectOpenHashMap<>();
+
+    /**
+     * Lookup from packed position to entry index, only held while changes are recorded.
+     */
+    @Nullable
+    private Long2IntOpenHashMap entryIndices = null;
+
+    /**
+     * Estimated heap size of the serialized tileEntities and entities.
+     */
+    private long nbtBytes = 0;
 
     /**
      * List of entities in range.
@@ -41,7 +144,7 @@ public class ChangeStorage
     /**
      * List of entities to kill in range.
      */
-    private final List<Entity> addedEntities = new ArrayList<>();
+    private final List<UUID> addedEntities = new ArrayList<>();
 
     /**
      * The operation which was done
@@ -49,12 +152,67 @@ public class ChangeStorage
     private final String operation;
 
     /**
-     * Current operation iteration
+     * Current operation iteration, -1 if not running.
+     */
+    private int replayIndex = -1;
+
+    /**
+     * Block flags of a batched replay: update clients, but no neighbour notifications and no neighbour shape updates.
+     */
+    private static final int REPLAY_FLAGS = Constants.BlockFlags.BLOCK_UPDATE | Constants.BlockFlags.UPDATE_NEIGHBORS;
+
+    /**
+     * Entry indices in replay order, only set during a batched replay.
+     */
+    @Nullable
+    private int[] replayOrder = null;
+
+    /**
+     * Positions set by the current batched replay, as set and in replay order.
+     */
+    @Nullable
+    private LongOpenHashSet replayedPositions = null;
+    @Nullable
+    private LongArrayList   replayedList      = null;
+
+    /**
+     * Index into the replayed positions of the next deferred neighbour update.
      */
-    private Iterator<Map.Entry<BlockPos, BlockChangeData>> iterator = null;
+    private int neighbourUpdateIndex = 0;
 
     private final UUID player;
 
+    /**
+     * Creation time in milliseconds, orders the history.
+     */
+    private final long created;
+
+    /**
+     * The file the journal has been spilled to, null while it is kept in memory only.
+     */
+    @Nullable
+    private File journalFile = null;
+
+    /**
+     * The amount of entries of the spilled journal.
+     */
+    private int spilledEntries = 0;
+
+    /**
+     * The memory-mapped columns of the spilled journal, only set while it is replayed.
+     */
+    @Nullable
+    private LongBuffer  mappedPositions  = null;
+    @Nullable
+    private ShortBuffer mappedPreStates  = null;
+    @Nullable
+    private ShortBuffer mappedPostStates = null;
+
+    /**
+     * If the journal file should be deleted once it is no longer mapped.
+     */
+    private boolean discardJournal = false;
+
     /**
      * Initiate an empty changeStorage to manually fill it.
      *
@@ -65,6 +223,28 @@ public class ChangeStorage
         this.player = player;
         this.id = storageIDs++;
         this.operation = operation;
+        this.created = System.currentTimeMillis();
+        this.paletteIndices.defaultReturnValue(NO_STATE);
+    }
+
+    /**
+     * Initiate a changeStorage of a journal which has been spilled before.
+     *
+     * @param operation      the operation.
+     * @param player         the player owner of it.
+     * @param created        the creation time.
+     * @param journalFile    the journal file.
+     * @param spilledEntries the amount of entries in the journal.
+     */
+    private ChangeStorage(final String operation, final UUID player, final long created, final File journalFile, final int spilledEntries)
+    {
+        this.player = player;
+        this.id = storageIDs++;
+        this.operation = operation;
+        this.created = created;
+        this.journalFile = journalFile;
+        this.spilledEntries = spilledEntries;
+        this.paletteIndices.defaultReturnValue(NO_STATE);
     }
 
     /**
@@ -79,20 +259,20 @@ public class ChangeStorage
         player = UUID.randomUUID();
         this.id = storageIDs++;
         this.operation = operation;
+        this.created = System.currentTimeMillis();
+        this.paletteIndices.defaultReturnValue(NO_STATE);
         for (int x = Math.min(from.getX(), to.getX()); x <= Math.max(from.getX(), to.getX()); x++)
         {
             for (int y = Math.min(from.getY(), to.getY()); y <= Math.max(from.getY(), to.getY()); y++)
             {
                 for (int z = Math.min(from.getZ(), to.getZ()); z <= Math.max(from.getZ(), to.getZ()); z++)
                 {
-                    final BlockPos place = new BlockPos(x, y, z);
-                    blocks.put(place, new BlockChangeData().withPreState(world.getBlockState(place)).withPreTE(world.getBlockEntity(place)));
+                    addPreviousDataFor(new BlockPos(x, y, z), world);
                 }
             }
         }
 
-        final List<Entity> tempEntities = world.getEntitiesOfClass(Entity.class, new AxisAlignedBB(from, to));
-        removedEntities.addAll(tempEntities.stream().map(Entity::serializeNBT).collect(Collectors.toList()));
+        addEntities(world.getEntitiesOfClass(Entity.class, new AxisAlignedBB(from, to)));
     }
 
     /**
@@ -103,7 +283,9 @@ public class ChangeStorage
      */
     public void addPreviousDataFor(final BlockPos place, final World world)
     {
-        blocks.computeIfAbsent(place, p -> new BlockChangeData()).withPreState(world.getBlockState(place)).withPreTE(world.getBlockEntity(place));
+        final int index = getOrCreateEntry(place);
+        preStates.set(index, getPaletteIndex(world.getBlockState(place)));
+        putTileEntity(preTileEntities, index, world.getBlockEntity(place));
     }
 
     /**
@@ -114,7 +296,167 @@ public class ChangeStorage
      */
     public void addPostDataFor(final BlockPos place, final World world)
     {
-        blocks.computeIfAbsent(place, p -> new BlockChangeData()).withPostState(world.getBlockState(place)).withPostTE(world.getBlockEntity(place));
+        final int index = getOrCreateEntry(place);
+        postStates.set(index, getPaletteIndex(world.getBlockState(place)));
+        putTileEntity(postTileEntities, index, world.getBlockEntity(place));
+    }
+
+    /**
+     * Get the journal entry of a position, appending a new one if required.
+     *
+     * @param place the position.
+     * @return the entry index.
+     */
+    private int getOrCreateEntry(final BlockPos place)
+    {
+        if (entryIndices == null)
+        {
+            entryIndices = new Long2IntOpenHashMap(positions.size());
+            entryIndices.defaultReturnValue(-1);
+            for (int i = 0; i < positions.size(); i++)
+            {
+                entryIndices.put(positions.getLong(i), i);
+            }
+        }
+
+        final long packed = place.asLong();
+        int index = entryIndices.get(packed);
+        if (index == -1)
+        {
+            index = positions.size();
+            positions.add(packed);
+            preStates.add(NO_STATE);
+            postStates.add(NO_STATE);
+            entryIndices.put(packed, index);
+        }
+        return index;
+    }
+
+    /**
+     * Get the palette index of a state, adding it if required.
+     *
+     * @param state the state.
+     * @return the index.
+     */
+    private short getPaletteIndex(final BlockState state)
+    {
+        short index = paletteIndices.getShort(state);
+        if (index == NO_STATE)
+        {
+            index = (short) palette.size();
+            palette.add(state);
+            paletteIndices.put(state, index);
+        }
+        return index;
+    }
+
+    /**
+     * Serialize a tileEntity into one of the tileEntity columns.
+     *
+     * @param column the column.
+     * @param index  the entry index.
+     * @param te     the tileEntity or null.
+     */
+    private void putTileEntity(final Int2ObjectOpenHashMap<CompoundNBT> column, final int index, @Nullable final TileEntity te)
+    {
+        final CompoundNBT previous = te == null ? column.remove(index) : column.put(index, te.serializeNBT());
+        if (previous != null)
+        {
+            nbtBytes -= estimateSize(previous);
+        }
+        if (te != null)
+        {
+            nbtBytes += estimateSize(column.get(index));
+        }
+    }
+
+    /**
+     * Restore a serialized tileEntity into the world.
+     *
+     * @param world the world.
+     * @param pos   the position.
+     * @param state the state at the position.
+     * @param data  the serialized tileEntity or null.
+     */
+    private static void restoreTileEntity(final World world, final BlockPos pos, final BlockState state, @Nullable final CompoundNBT data)
+    {
+        if (data != null)
+        {
+            final TileEntity te = TileEntity.loadStatic(state, data.copy());
+            if (te != null)
+            {
+                world.setBlockEntity(pos, te);
+            }
+        }
+    }
+
+    /**
+     * Stop recording and drop the structures only needed while recording.
+     * Recording can continue afterwards, at the cost of rebuilding them.
+     */
+    public void compact()
+    {
+        entryIndices = null;
+        positions.trim();
+        preStates.trim();
+        postStates.trim();
+        preTileEntities.trim();
+        postTileEntities.trim();
+    }
+
+    /**
+     * Get the estimated heap size of this storage.
+     *
+     * @return the size in bytes.
+     */
+    public long getEstimatedSize()
+    {
+        return (long) positions.size() * BYTES_PER_ENTRY + nbtBytes;
+    }
+
+    /**
+     * Roughly estimate the heap size of an nbt tag.
+     *
+     * @param tag the tag.
+     * @return the estimated size in bytes.
+     */
+    private static long estimateSize(final INBT tag)
+    {
+        if (tag instanceof CompoundNBT)
+        {
+            long size = 48;
+            for (final String key : ((CompoundNBT) tag).getAllKeys())
+            {
+                size += 40 + key.length() * 2L + estimateSize(((CompoundNBT) tag).get(key));
+            }
+            return size;
+        }
+        if (tag instanceof ByteArrayNBT)
+        {
+            return 16 + ((ByteArrayNBT) tag).getAsByteArray().length;
+        }
+        if (tag instanceof IntArrayNBT)
+        {
+            return 16 + ((IntArrayNBT) tag).getAsIntArray().length * 4L;
+        }
+        if (tag instanceof LongArrayNBT)
+        {
+            return 16 + ((LongArrayNBT) tag).getAsLongArray().length * 8L;
+        }
+        if (tag instanceof ListNBT)
+        {
+            long size = 40;
+            for (final INBT element : (ListNBT) tag)
+            {
+                size += estimateSize(element);
+            }
+            return size;
+        }
+        if (tag instanceof StringNBT)
+        {
+            return 40 + tag.getAsString().length() * 2L;
+        }
+        return 16;
     }
 
     /**
@@ -124,7 +466,12 @@ public class ChangeStorage
      */
     public void addEntities(final List<Entity> list)
     {
-        removedEntities.addAll(list.stream().map(Entity::serializeNBT).collect(Collectors.toList()));
+        final List<CompoundNBT> serialized = list.stream().map(Entity::serializeNBT).collect(Collectors.toList());
+        for (final CompoundNBT data : serialized)
+        {
+            nbtBytes += estimateSize(data);
+        }
+        removedEntities.addAll(serialized);
     }
 
     /**
@@ -134,7 +481,7 @@ public class ChangeStorage
      */
     public void addToBeKilledEntity(final Entity entity)
     {
-        addedEntities.add(entity);
+        addedEntities.add(entity.getUUID());
     }
 
     /**
@@ -146,35 +493,36 @@ public class ChangeStorage
      */
     public boolean undo(final World world, @Nullable final ChangeStorage undoStorage)
     {
-        if (iterator == null)
+        if (replayIndex == -1 && !startReplay())
         {
-            iterator = blocks.entrySet().iterator();
+            return true;
         }
 
+        final BlockPos.Mutable pos = new BlockPos.Mutable();
         int count = 0;
-        while (iterator.hasNext())
+        while (replayIndex < getEntryCount())
         {
-            final Map.Entry<BlockPos, BlockChangeData> entry = iterator.next();
+            final int index = nextReplayEntry();
+            final long packed = getPackedPosition(index);
+            pos.set(BlockPos.getX(packed), BlockPos.getY(packed), BlockPos.getZ(packed));
             // Only revert block changes which this operation caused
-            if (world.getBlockState(entry.getKey()) != entry.getValue().getPostState())
+            if (world.getBlockState(pos) != getState(getPostState(index)))
             {
                 continue;
             }
 
+            final BlockPos place = pos.immutable();
             if (undoStorage != null)
             {
-                undoStorage.addPreviousDataFor(entry.getKey(), world);
-            }
-            world.setBlockAndUpdate(entry.getKey(), entry.getValue().getPreState());
-
-            if (entry.getValue().getPreTE() != null)
-            {
-                world.setBlockEntity(entry.getKey(), entry.getValue().getPreTE());
+                undoStorage.addPreviousDataFor(place, world);
             }
+            final BlockState preState = getState(getPreState(index));
+            setReplayedBlock(world, place, preState);
+            restoreTileEntity(world, place, preState, preTileEntities.get(index));
 
             if (undoStorage != null)
             {
-                undoStorage.addPostDataFor(entry.getKey(), world);
+                undoStorage.addPostDataFor(place, world);
             }
 
             count++;
@@ -185,6 +533,11 @@ public class ChangeStorage
             }
         }
 
+        if (!updateReplayedNeighbours(world, count))
+        {
+            return false;
+        }
+
         for (final CompoundNBT data : removedEntities)
         {
             final Optional<EntityType<?>> type = EntityType.by(data);
@@ -197,12 +550,23 @@ public class ChangeStorage
                     world.addFreshEntity(entity);
                     if (undoStorage != null)
                     {
-                        undoStorage.addedEntities.add(entity);
+                        undoStorage.addedEntities.add(entity.getUUID());
                     }
                 }
             }
         }
-        addedEntities.forEach(Entity::remove);
+        if (world instanceof ServerWorld)
+        {
+            for (final UUID uuid : addedEntities)
+            {
+                final Entity entity = ((ServerWorld) world).getEntity(uuid);
+                if (entity != null)
+                {
+                    entity.remove();
+                }
+            }
+        }
+        releaseJournal();
 
         if (undoStorage != null)
         {
@@ -221,24 +585,26 @@ public class ChangeStorage
     {
         int count = 0;
 
-        if (iterator == null)
+        if (replayIndex == -1 && !startReplay())
         {
-            iterator = blocks.entrySet().iterator();
+            return true;
         }
 
-        while (iterator.hasNext())
+        final BlockPos.Mutable pos = new BlockPos.Mutable();
+        while (replayIndex < getEntryCount())
         {
-            final Map.Entry<BlockPos, BlockChangeData> entry = iterator.next();
-            if (world.getBlockState(entry.getKey()) != entry.getValue().getPreState())
+            final int index = nextReplayEntry();
+            final long packed = getPackedPosition(index);
+            pos.set(BlockPos.getX(packed), BlockPos.getY(packed), BlockPos.getZ(packed));
+            if (world.getBlockState(pos) != getState(getPreState(index)))
             {
                 continue;
             }
 
-            world.setBlockAndUpdate(entry.getKey(), entry.getValue().getPostState());
-            if (entry.getValue().getPostTE() != null)
-            {
-                world.setBlockEntity(entry.getKey(), entry.getValue().getPostTE());
-            }
+            final BlockPos place = pos.immutable();
+            final BlockState postState = getState(getPostState(index));
+            setReplayedBlock(world, place, postState);
+            restoreTileEntity(world, place, postState, postTileEntities.get(index));
             count++;
 
             if (count >= Structurize.getConfig().getServer().maxOperationsPerTick.get())
@@ -247,6 +613,12 @@ public class ChangeStorage
             }
         }
 
+        if (!updateReplayedNeighbours(world, count))
+        {
+            return false;
+        }
+
+        releaseJournal();
         return true;
     }
 
@@ -265,7 +637,147 @@ public class ChangeStorage
      */
     public void resetUnRedo()
     {
-        iterator = null;
+        replayIndex = -1;
+        replayOrder = null;
+        replayedPositions = null;
+        replayedList = null;
+    }
+
+    /**
+     * Start a replay, mapping the journal if it has been spilled.
+     * In batched mode the entries are replayed chunk section by chunk section.
+     *
+     * @return false if there is nothing to replay.
+     */
+    private boolean startReplay()
+    {
+        replayIndex = 0;
+        if (journalFile != null && !mapJournal())
+        {
+            replayIndex = spilledEntries;
+            return false;
+        }
+
+        if (Structurize.getConfig().getServer().batchedUndoRedo.get())
+        {
+            replayOrder = sortBySection();
+            replayedPositions = new LongOpenHashSet();
+            replayedList = new LongArrayList();
+            neighbourUpdateIndex = 0;
+        }
+        return true;
+    }
+
+    /**
+     * Order the entries by chunk section, keeping the recorded order within a section.
+     *
+     * @return the entry indices in replay order.
+     */
+    private int[] sortBySection()
+    {
+        final int[] order = new int[getEntryCount()];
+        final long[] sections = new long[order.length];
+        for (int i = 0; i < order.length; i++)
+        {
+            order[i] = i;
+            sections[i] = SectionPos.blockToSection(getPackedPosition(i));
+        }
+
+        IntArrays.quickSort(order, (a, b) -> {
+            final int bySection = Long.compare(sections[a], sections[b]);
+            return bySection != 0 ? bySection : Integer.compare(a, b);
+        });
+        return order;
+    }
+
+    /**
+     * @return the next entry index to replay.
+     */
+    private int nextReplayEntry()
+    {
+        final int next = replayIndex++;
+        return replayOrder == null ? next : replayOrder[next];
+    }
+
+    /**
+     * Set a block during a replay.
+     * In batched mode only the client is updated, which the chunk holder sends once per section and tick,
+     * neighbour updates are deferred to {@link #updateReplayedNeighbours(World, int)}.
+     *
+     * @param world the world.
+     * @param place the position.
+     * @param state the state to set.
+     */
+    private void setReplayedBlock(final World world, final BlockPos place, final BlockState state)
+    {
+        if (replayedPositions == null)
+        {
+            world.setBlockAndUpdate(place, state);
+            return;
+        }
+
+        world.setBlock(place, state, REPLAY_FLAGS);
+        if (replayedPositions.add(place.asLong()))
+        {
+            replayedList.add(place.asLong());
+        }
+    }
+
+    /**
+     * Run the deferred neighbour updates of a batched replay.
+     * Only blocks at the border of the replayed region notify their neighbours, blocks within it have all been replaced anyway.
+     *
+     * @param world the world.
+     * @param count the operations done in this tick so far.
+     * @return false if the operation limit was hit before all updates ran.
+     */
+    private boolean updateReplayedNeighbours(final World world, final int count)
+    {
+        if (replayedPositions == null)
+        {
+            return true;
+        }
+
+        final int maxOperations = Structurize.getConfig().getServer().maxOperationsPerTick.get();
+        int operations = count;
+        while (neighbourUpdateIndex < replayedList.size())
+        {
+            final long packed = replayedList.getLong(neighbourUpdateIndex++);
+            for (final Direction direction : Direction.values())
+            {
+                if (!replayedPositions.contains(BlockPos.offset(packed, direction)))
+                {
+                    final BlockPos place = BlockPos.of(packed);
+                    final BlockState state = world.getBlockState(place);
+                    world.blockUpdated(place, state.getBlock());
+                    state.updateNeighbourShapes(world, place, Constants.BlockFlags.DEFAULT);
+                    operations++;
+                    break;
+                }
+            }
+
+            if (operations >= maxOperations)
+            {
+                return false;
+            }
+        }
+
+        replayOrder = null;
+        replayedPositions = null;
+        replayedList = null;
+        return true;
+    }
+
+    /**
+     * Get the state of a palette index.
+     *
+     * @param index the index.
+     * @return the state or null if none was recorded.
+     */
+    @Nullable
+    private BlockState getState(final short index)
+    {
+        return index == NO_STATE ? null : palette.get(index);
     }
 
     /**
@@ -275,7 +787,371 @@ public class ChangeStorage
      */
     public boolean isDone()
     {
-        return iterator == null || !iterator.hasNext();
+        return replayIndex == -1 || (replayIndex >= getEntryCount() && replayedPositions == null);
+    }
+
+    /**
+     * @return the amount of entries in the journal.
+     */
+    private int getEntryCount()
+    {
+        return journalFile == null ? positions.size() : spilledEntries;
+    }
+
+    /**
+     * Get the packed position of an entry, from the mapped journal if spilled.
+     *
+     * @param index the entry index.
+     * @return the packed position.
+     */
+    private long getPackedPosition(final int index)
+    {
+        return mappedPositions == null ? positions.getLong(index) : mappedPositions.get(index);
+    }
+
+    /**
+     * Get the pre state palette index of an entry, from the mapped journal if spilled.
+     *
+     * @param index the entry index.
+     * @return the palette index.
+     */
+    private short getPreState(final int index)
+    {
+        return mappedPreStates == null ? preStates.getShort(index) : mappedPreStates.get(index);
+    }
+
+    /**
+     * Get the post state palette index of an entry, from the mapped journal if spilled.
+     *
+     * @param index the entry index.
+     * @return the palette index.
+     */
+    private short getPostState(final int index)
+    {
+        return mappedPostStates == null ? postStates.getShort(index) : mappedPostStates.get(index);
+    }
+
+    /**
+     * Write the journal to a file in the given directory and drop it from the heap.
+     * A replay which is in progress continues from the mapped file.
+     * Does nothing if the journal has been spilled already.
+     *
+     * @param directory the directory to write the journal file to.
+     * @return false if the journal could not be written and is still kept in memory.
+     */
+    public boolean spill(final File directory)
+    {
+        if (journalFile != null)
+        {
+            return true;
+        }
+
+        final File file = new File(directory, created + "-" + id + JOURNAL_EXTENSION);
+        try
+        {
+            writeJournal(file);
+        }
+        catch (final IOException e)
+        {
+            Log.getLogger().error("Could not write undo journal " + file, e);
+            return false;
+        }
+
+        final boolean replaying = !isDone();
+        journalFile = file;
+        spilledEntries = positions.size();
+        entryIndices = null;
+        positions.clear();
+        positions.trim();
+        preStates.clear();
+        preStates.trim();
+        postStates.clear();
+        postStates.trim();
+        clearMetadata();
+
+        if (replaying && !mapJournal())
+        {
+            replayIndex = spilledEntries;
+        }
+        return true;
+    }
+
+    /**
+     * Write the journal file.
+     * Layout: magic, version, column offset, operation, player, creation time, entry count and the nbt metadata,
+     * followed by the positions, pre states and post states columns.
+     *
+     * @param file the file to write.
+     * @throws IOException if writing failed.
+     */
+    private void writeJournal(final File file) throws IOException
+    {
+        final CompoundNBT meta = new CompoundNBT();
+        final ListNBT paletteTag = new ListNBT();
+        for (final BlockState state : palette)
+        {
+            paletteTag.add(NBTUtil.writeBlockState(state));
+        }
+        meta.put(TAG_PALETTE, paletteTag);
+        meta.put(TAG_PRE_TILEENTITIES, writeTileEntities(preTileEntities));
+        meta.put(TAG_POST_TILEENTITIES, writeTileEntities(postTileEntities));
+        final ListNBT removedTag = new ListNBT();
+        removedTag.addAll(removedEntities);
+        meta.put(TAG_REMOVED_ENTITIES, removedTag);
+        final ListNBT addedTag = new ListNBT();
+        for (final UUID uuid : addedEntities)
+        {
+            addedTag.add(NBTUtil.createUUID(uuid));
+        }
+        meta.put(TAG_ADDED_ENTITIES, addedTag);
+
+        final ByteArrayOutputStream header = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(header))
+        {
+            out.writeUTF(operation);
+            out.writeLong(player.getMostSignificantBits());
+            out.writeLong(player.getLeastSignificantBits());
+            out.writeLong(created);
+            out.writeInt(positions.size());
+            CompressedStreamTools.write(meta, out);
+        }
+
+        file.getParentFile().mkdirs();
+        final File tmp = new File(file.getPath() + "_tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp))))
+        {
+            out.writeInt(JOURNAL_MAGIC);
+            out.writeInt(JOURNAL_VERSION);
+            out.writeInt(JOURNAL_HEADER_SIZE + header.size());
+            header.writeTo(out);
+            for (int i = 0; i < positions.size(); i++)
+            {
+                out.writeLong(positions.getLong(i));
+            }
+            for (int i = 0; i < preStates.size(); i++)
+            {
+                out.writeShort(preStates.getShort(i));
+            }
+            for (int i = 0; i < postStates.size(); i++)
+            {
+                out.writeShort(postStates.getShort(i));
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Serialize a tileEntity column.
+     *
+     * @param column the column.
+     * @return the list of index and data pairs.
+     */
+    private static ListNBT writeTileEntities(final Int2ObjectOpenHashMap<CompoundNBT> column)
+    {
+        final ListNBT list = new ListNBT();
+        for (final Int2ObjectMap.Entry<CompoundNBT> entry : column.int2ObjectEntrySet())
+        {
+            final CompoundNBT tag = new CompoundNBT();
+            tag.putInt(TAG_INDEX, entry.getIntKey());
+            tag.put(TAG_DATA, entry.getValue());
+            list.add(tag);
+        }
+        return list;
+    }
+
+    /**
+     * Deserialize a tileEntity column.
+     *
+     * @param list   the list of index and data pairs.
+     * @param column the column to fill.
+     */
+    private static void readTileEntities(final ListNBT list, final Int2ObjectOpenHashMap<CompoundNBT> column)
+    {
+        for (int i = 0; i < list.size(); i++)
+        {
+            final CompoundNBT tag = list.getCompound(i);
+            column.put(tag.getInt(TAG_INDEX), tag.getCompound(TAG_DATA));
+        }
+    }
+
+    /**
+     * Map the spilled journal for a replay, the metadata is read into the heap and the columns are read from the mapping.
+     *
+     * @return false if the journal could not be read.
+     */
+    private boolean mapJournal()
+    {
+        if (mappedPositions != null)
+        {
+            return true;
+        }
+
+        try (FileChannel channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.READ))
+        {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != JOURNAL_MAGIC || buffer.getInt(4) != JOURNAL_VERSION)
+            {
+                throw new IOException("Not a supported undo journal");
+            }
+
+            final int columnOffset = buffer.getInt(8);
+            final byte[] header = new byte[columnOffset - JOURNAL_HEADER_SIZE];
+            buffer.position(JOURNAL_HEADER_SIZE);
+            buffer.get(header);
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(header)))
+            {
+                in.readUTF();
+                in.readLong();
+                in.readLong();
+                in.readLong();
+                in.readInt();
+                readMetadata(CompressedStreamTools.read(in, NBTSizeTracker.UNLIMITED));
+            }
+
+            buffer.position(columnOffset);
+            mappedPositions = buffer.slice().asLongBuffer();
+            buffer.position(columnOffset + spilledEntries * 8);
+            mappedPreStates = buffer.slice().asShortBuffer();
+            buffer.position(columnOffset + spilledEntries * 10);
+            mappedPostStates = buffer.slice().asShortBuffer();
+            return true;
+        }
+        catch (final IOException | RuntimeException e)
+        {
+            Log.getLogger().error("Could not read undo journal " + journalFile, e);
+            releaseJournal();
+            return false;
+        }
+    }
+
+    /**
+     * Read the journal metadata into the heap.
+     *
+     * @param meta the metadata.
+     */
+    private void readMetadata(final CompoundNBT meta)
+    {
+        final ListNBT paletteTag = meta.getList(TAG_PALETTE, Constants.NBT.TAG_COMPOUND);
+        for (int i = 0; i < paletteTag.size(); i++)
+        {
+            final BlockState state = NBTUtil.readBlockState(paletteTag.getCompound(i));
+            palette.add(state);
+            paletteIndices.putIfAbsent(state, (short) i);
+        }
+        readTileEntities(meta.getList(TAG_PRE_TILEENTITIES, Constants.NBT.TAG_COMPOUND), preTileEntities);
+        readTileEntities(meta.getList(TAG_POST_TILEENTITIES, Constants.NBT.TAG_COMPOUND), postTileEntities);
+        final ListNBT removedTag = meta.getList(TAG_REMOVED_ENTITIES, Constants.NBT.TAG_COMPOUND);
+        for (int i = 0; i < removedTag.size(); i++)
+        {
+            removedEntities.add(removedTag.getCompound(i));
+        }
+        for (final INBT tag : meta.getList(TAG_ADDED_ENTITIES, Constants.NBT.TAG_INT_ARRAY))
+        {
+            addedEntities.add(NBTUtil.loadUUID(tag));
+        }
+        nbtBytes = estimateSize(meta);
+    }
+
+    /**
+     * Drop the metadata and tileEntities from the heap.
+     */
+    private void clearMetadata()
+    {
+        palette.clear();
+        paletteIndices.clear();
+        preTileEntities.clear();
+        preTileEntities.trim();
+        postTileEntities.clear();
+        postTileEntities.trim();
+        removedEntities.clear();
+        addedEntities.clear();
+        nbtBytes = 0;
+    }
+
+    /**
+     * Release the mapping and metadata of a spilled journal after a replay.
+     */
+    private void releaseJournal()
+    {
+        if (journalFile == null)
+        {
+            return;
+        }
+
+        mappedPositions = null;
+        mappedPreStates = null;
+        mappedPostStates = null;
+        clearMetadata();
+
+        if (discardJournal)
+        {
+            deleteJournalFile();
+        }
+    }
+
+    /**
+     * Delete the journal file of this storage when it leaves the history.
+     *
+     * @param afterReplay true to keep the file until the next replay finished.
+     */
+    public void discardJournal(final boolean afterReplay)
+    {
+        discardJournal = true;
+        if (!afterReplay && mappedPositions == null)
+        {
+            deleteJournalFile();
+        }
+    }
+
+    /**
+     * Delete the journal file, if any.
+     */
+    private void deleteJournalFile()
+    {
+        if (journalFile != null && journalFile.exists() && !journalFile.delete())
+        {
+            journalFile.deleteOnExit();
+        }
+    }
+
+    /**
+     * Read the header of a spilled journal, the columns and metadata stay on disk until the journal is replayed.
+     *
+     * @param file the journal file.
+     * @return the change storage of the journal.
+     * @throws IOException if the file is not a readable journal.
+     */
+    public static ChangeStorage readJournalHeader(final File file) throws IOException
+    {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+        {
+            if (in.readInt() != JOURNAL_MAGIC || in.readInt() != JOURNAL_VERSION)
+            {
+                throw new IOException("Not a supported undo journal");
+            }
+            in.readInt();
+            final String operation = in.readUTF();
+            final UUID player = new UUID(in.readLong(), in.readLong());
+            final long created = in.readLong();
+            final int entries = in.readInt();
+            return new ChangeStorage(operation, player, created, file, entries);
+        }
+    }
+
+    /**
+     * @return the creation time in milliseconds.
+     */
+    public long getCreated()
+    {
+        return created;
+    }
+
+    /**
+     * @return true if the journal has been spilled to a file.
+     */
+    public boolean isSpilled()
+    {
+        return journalFile != null;
     }
 
     /**
@@ -1,7 +1,10 @@
 package com.ldtteam.structurize.util;
 
+import com.ldtteam.structures.blueprints.v1.BlueprintScanner;
 import com.ldtteam.structurize.Structurize;
 import com.ldtteam.structurize.placement.BlockPlacementResult;
+import com.ldtteam.structurize.placement.PlacementPlan;
+import com.ldtteam.structurize.placement.RegionStructurePlacer;
 import com.ldtteam.structurize.placement.StructurePhasePlacementResult;
 import com.ldtteam.structurize.placement.StructurePlacer;
 import com.mojang.authlib.GameProfile;
@@ -13,11 +16,15 @@ import net.minecraft.item.Items;
 import net.minecraft.state.properties.BedPart;
 import net.minecraft.state.properties.DoubleBlockHalf;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.RegistryKey;
+import net.minecraft.util.text.TranslationTextComponent;
+import net.minecraft.world.World;
 import net.minecraft.world.server.ServerWorld;
 import net.minecraftforge.common.util.FakePlayer;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.UUID;
+import java.util.function.Consumer;
 
 import static com.ldtteam.structurize.placement.AbstractBlueprintIterator.NULL_POS;
 
@@ -66,6 +73,11 @@ public class TickedWorldOperation
     @Nullable
     private PlayerEntity player = null;
 
+    /**
+     * The dimension the operation is applied in.
+     */
+    private final RegistryKey<World> dimension;
+
     /**
      * The changeStorage associated to this operation..
      */
@@ -88,8 +100,16 @@ public class TickedWorldOperation
 
     /**
      * The structure wrapper if structure place.
+     * For region placements this is the placer of the current region.
      */
-    private final StructurePlacer placer;
+    @Nullable
+    private StructurePlacer placer;
+
+    /**
+     * The region placer if a huge structure is placed region by region.
+     */
+    @Nullable
+    private final RegionStructurePlacer regionPlacer;
 
     /**
      * The phase the placmeent is in.
@@ -98,9 +118,22 @@ public class TickedWorldOperation
 
     /**
      * Operation percentage.
+     * For scans this is the scan progress.
      */
     private int pct;
 
+    /**
+     * The scanner if scan.
+     */
+    @Nullable
+    private final BlueprintScanner scanner;
+
+    /**
+     * Called with the scanner once a scan is complete.
+     */
+    @Nullable
+    private final Consumer<BlueprintScanner> onScanned;
+
     /**
      * Create a ScanToolOperation.
      *
@@ -130,7 +163,11 @@ public class TickedWorldOperation
         this.secondBlock = secondBlock;
         this.storage = new ChangeStorage(type.toString(), player != null ? player.getUUID() : UUID.randomUUID());
         this.placer = null;
+        this.regionPlacer = null;
         this.pct = pct;
+        this.scanner = null;
+        this.onScanned = null;
+        this.dimension = player != null ? player.level.dimension() : World.OVERWORLD;
     }
 
     /**
@@ -155,6 +192,10 @@ public class TickedWorldOperation
             undoStorage = new ChangeStorage(operation.toString() + ":" + storage.getOperation(), player != null ? player.getUUID() : UUID.randomUUID());
         }
         this.placer = null;
+        this.regionPlacer = null;
+        this.scanner = null;
+        this.onScanned = null;
+        this.dimension = player != null ? player.level.dimension() : World.OVERWORLD;
     }
 
     /**
@@ -174,6 +215,82 @@ public class TickedWorldOperation
         this.secondBlock = ItemStack.EMPTY;
         this.storage = new ChangeStorage(operation + ":" + placer.getHandler().getBluePrint().getName(), player != null ? player.getUUID() : UUID.randomUUID());
         this.placer = placer;
+        this.regionPlacer = null;
+        this.scanner = null;
+        this.onScanned = null;
+        this.dimension = placer.getHandler().getWorld().dimension();
+    }
+
+    /**
+     * Create a ScanToolOperation for a structure placement region by region.
+     * Each placement phase visits all regions before the next phase starts, water removal visits them top to bottom.
+     *
+     * @param regionPlacer the region placer of the structure.
+     * @param player       the player.
+     */
+    public TickedWorldOperation(final RegionStructurePlacer regionPlacer, @Nullable final PlayerEntity player)
+    {
+        this.operation = OperationType.PLACE_STRUCTURE;
+        this.startPos = BlockPos.ZERO;
+        this.currentPos = NULL_POS;
+        this.endPos = BlockPos.ZERO;
+        this.player = player;
+        this.firstBlock = ItemStack.EMPTY;
+        this.secondBlock = ItemStack.EMPTY;
+        this.regionPlacer = regionPlacer;
+        regionPlacer.start(true);
+        this.placer = regionPlacer.getPlacer();
+        this.storage = new ChangeStorage(operation + ":" + regionPlacer.getName(), player != null ? player.getUUID() : UUID.randomUUID());
+        this.scanner = null;
+        this.onScanned = null;
+        this.dimension = regionPlacer.getHandler().getWorld().dimension();
+    }
+
+    /**
+     * Create a ScanToolOperation for a scan.
+     *
+     * @param scanner   the scanner of the region.
+     * @param player    the player.
+     * @param onScanned called with the scanner once all blocks are scanned.
+     */
+    public TickedWorldOperation(final BlueprintScanner scanner, @Nullable final PlayerEntity player, final Consumer<BlueprintScanner> onScanned)
+    {
+        this.operation = OperationType.SCAN;
+        this.startPos = scanner.getPos();
+        this.currentPos = scanner.getPos();
+        this.endPos = scanner.getPos().offset(scanner.getSizeX() - 1, scanner.getSizeY() - 1, scanner.getSizeZ() - 1);
+        this.player = player;
+        this.firstBlock = ItemStack.EMPTY;
+        this.secondBlock = ItemStack.EMPTY;
+        this.storage = new ChangeStorage(operation.toString(), player != null ? player.getUUID() : UUID.randomUUID());
+        this.placer = null;
+        this.regionPlacer = null;
+        this.pct = 0;
+        this.scanner = scanner;
+        this.onScanned = onScanned;
+        this.dimension = scanner.getWorld().dimension();
+    }
+
+    /**
+     * Check if the operation can make progress in a world.
+     *
+     * @param world the world which is ticking.
+     * @return true if so.
+     */
+    public boolean canApply(final ServerWorld world)
+    {
+        return dimension.location().equals(world.dimension().location());
+    }
+
+    /**
+     * Get the dimension the operation is applied in.
+     * Operations without a player or structure are applied in the overworld.
+     *
+     * @return the dimension key.
+     */
+    public RegistryKey<World> getDimension()
+    {
+        return dimension;
     }
 
     /**
@@ -184,7 +301,24 @@ public class TickedWorldOperation
      */
     public boolean apply(final ServerWorld world)
     {
-        if (player != null && player.level.dimension() != world.dimension())
+        return apply(world, Long.MAX_VALUE);
+    }
+
+    /**
+     * Apply the operation on the world, stopping early once the deadline passed.
+     *
+     * @param world    the world to apply them on.
+     * @param deadline the {@link System#nanoTime()} after which no further blocks are changed in this call.
+     * @return true if finished.
+     */
+    public boolean apply(final ServerWorld world, final long deadline)
+    {
+        if (operation == OperationType.SCAN)
+        {
+            return scan(world, deadline);
+        }
+
+        if (!canApply(world))
         {
             return false;
         }
@@ -201,46 +335,73 @@ public class TickedWorldOperation
 
         if (operation == OperationType.PLACE_STRUCTURE)
         {
+            if (placer == null)
+            {
+                // No region of a region placement could be loaded.
+                finishRegions();
+                return true;
+            }
+
             if (placer.getHandler().getWorld().dimension().location().equals(world.dimension().location()))
             {
                 StructurePhasePlacementResult result;
+                // Until the plan is compiled in the background the phases iterate with their skip conditions.
+                final PlacementPlan plan = placer.getPlan();
                 switch (structurePhase)
                 {
                     case 0:
                         //water
                         result = placer.executeStructureStep(world, storage, currentPos, StructurePlacer.Operation.WATER_REMOVAL,
-                          () -> placer.getIterator().decrement((info, pos, handler) -> info.getBlockInfo().getState().canOcclude()), false);
+                          () -> plan != null ? placer.getIterator().advance(plan, PlacementPlan.Phase.WATER_REMOVAL)
+                                 : placer.getIterator().decrement((info, pos, handler) -> info.getBlockInfo().getState().canOcclude()), false);
 
                         currentPos = result.getIteratorPos();
                         break;
                     case 1:
                         //structure
                         result = placer.executeStructureStep(world, storage, currentPos, StructurePlacer.Operation.BLOCK_PLACEMENT,
-                          () -> placer.getIterator().increment((info, pos, handler) -> !info.getBlockInfo().getState().getMaterial().isSolid()), false);
+                          () -> plan != null ? placer.getIterator().advance(plan, PlacementPlan.Phase.SOLID)
+                                 : placer.getIterator().increment((info, pos, handler) -> !info.getBlockInfo().getState().getMaterial().isSolid()), false);
 
                         currentPos = result.getIteratorPos();
                         break;
                     case 2:
                         // not solid
                         result = placer.executeStructureStep(world, storage, currentPos, StructurePlacer.Operation.BLOCK_PLACEMENT,
-                          () -> placer.getIterator().increment((info, pos, handler) -> info.getBlockInfo().getState().getMaterial().isSolid()), false);
+                          () -> plan != null ? placer.getIterator().advance(plan, PlacementPlan.Phase.NON_SOLID)
+                                 : placer.getIterator().increment((info, pos, handler) -> info.getBlockInfo().getState().getMaterial().isSolid()), false);
                         currentPos = result.getIteratorPos();
                         break;
                     default:
                         // entities
                         result = placer.executeStructureStep(world, storage, currentPos, StructurePlacer.Operation.BLOCK_PLACEMENT,
-                          () -> placer.getIterator().increment((info, pos, handler) -> info.getEntities().length == 0), true);
+                          () -> plan != null ? placer.getIterator().advance(plan, PlacementPlan.Phase.ENTITIES)
+                                 : placer.getIterator().increment((info, pos, handler) -> info.getEntities().length == 0), true);
                         currentPos = result.getIteratorPos();
                         break;
                 }
 
                 if (result.getBlockResult().getResult() == BlockPlacementResult.Result.FINISHED)
                 {
+                    if (regionPlacer != null && regionPlacer.nextRegion())
+                    {
+                        placer = regionPlacer.getPlacer();
+                        currentPos = NULL_POS;
+                        return false;
+                    }
+
                     structurePhase++;
                     if (structurePhase > 3)
                     {
                         structurePhase = 0;
                         currentPos = null;
+                        finishRegions();
+                    }
+                    else if (regionPlacer != null)
+                    {
+                        regionPlacer.start(false);
+                        placer = regionPlacer.getPlacer();
+                        currentPos = NULL_POS;
                     }
                 }
 
@@ -249,16 +410,29 @@ public class TickedWorldOperation
             return false;
         }
 
-        return run(world);
+        return run(world, deadline);
+    }
+
+    /**
+     * Release the regions of a region placement once it is done.
+     */
+    private void finishRegions()
+    {
+        if (regionPlacer != null)
+        {
+            regionPlacer.close();
+            placer = null;
+        }
     }
 
     /**
-     * Run the operation up to a max count.
+     * Run the operation up to a max count or until the deadline passed.
      *
-     * @param world the world to run it in.
+     * @param world    the world to run it in.
+     * @param deadline the nano time to stop at.
      * @return true if finished.
      */
-    private boolean run(final ServerWorld world)
+    private boolean run(final ServerWorld world, final long deadline)
     {
         final FakePlayer fakePlayer = new FakePlayer(world, new GameProfile(player == null ? UUID.randomUUID() : player.getUUID(), "structurizefakeplayer"));
         int count = 0;
@@ -291,7 +465,7 @@ public class TickedWorldOperation
                             BlockUtils.removeFluid(world, here);
                             if (firstBlock.getItem() instanceof BucketItem && !(blockState.getBlock() instanceof FlowingFluidBlock))
                             {
-                                if (count >= Structurize.getConfig().getServer().maxOperationsPerTick.get())
+                                if (count >= Structurize.getConfig().getServer().maxOperationsPerTick.get() || System.nanoTime() >= deadline)
                                 {
                                     currentPos = new BlockPos(x, y, z);
                                     return false;
@@ -314,7 +488,7 @@ public class TickedWorldOperation
 
                         storage.addPostDataFor(here, world);
 
-                        if (count >= Structurize.getConfig().getServer().maxOperationsPerTick.get())
+                        if (count >= Structurize.getConfig().getServer().maxOperationsPerTick.get() || System.nanoTime() >= deadline)
                         {
                             currentPos = new BlockPos(x, y, z);
                             return false;
@@ -328,6 +502,38 @@ public class TickedWorldOperation
         return true;
     }
 
+    /**
+     * Scan a bounded amount of chunk sections or until the deadline passed.
+     *
+     * @param world    the world which is ticking.
+     * @param deadline the nano time to stop at.
+     * @return true if finished.
+     */
+    private boolean scan(final ServerWorld world, final long deadline)
+    {
+        if (!canApply(world))
+        {
+            return false;
+        }
+
+        final boolean done = scanner.scanSections(Structurize.getConfig().getServer().maxScanSectionsPerStep.get(), deadline);
+        final int progress = scanner.getScannedSections() * 100 / Math.max(1, scanner.getTotalSections());
+        if (progress != pct)
+        {
+            pct = progress;
+            if (player != null)
+            {
+                player.displayClientMessage(new TranslationTextComponent("com.ldtteam.structurize.gui.scantool.progress", pct), true);
+            }
+        }
+
+        if (done)
+        {
+            onScanned.accept(scanner);
+        }
+        return done;
+    }
+
     /**
      * Is this the correct block to remove it or replace it.
      *
@@ -364,4 +570,14 @@ public class TickedWorldOperation
     {
         return operation == OperationType.UNDO || operation == OperationType.REDO;
     }
+
+    /**
+     * Check if operation is a scan, which doesn't change the world.
+     *
+     * @return true if so.
+     */
+    public boolean isScan()
+    {
+        return operation == OperationType.SCAN;
+    }
 }